@@ -0,0 +1,47 @@
+package jpabook.jpashop.projection;
+
+import java.lang.annotation.*;
+
+/**
+ * DTO 프로젝션 정의 -> ProjectionProcessor가 컴파일 시점에 같은 패키지에 {@link #name()} 클래스를 생성한다
+ * <pre>
+ * public static final String SELECT = "o.id, m.name";                        //select 목록
+ * public static final String FROM = "Order o join o.member m";                //from + join
+ * public static final String QUERY = "select " + SELECT + " from " + FROM;
+ * public static OrderDto map(Object[] row)                                    //생성자 직접 호출 (리플렉션 없음)
+ * public static List&lt;OrderDto&gt; mapAll(List&lt;Object[]&gt; rows)
+ * </pre>
+ * select 경로는 엔티티 필드를 따라가며 검사하고, 경로 타입과 맞는 DTO 생성자가 없으면 컴파일 에러
+ * -> 엔티티 필드 이름/타입이나 DTO 생성자를 바꾸면 런타임이 아니라 컴파일에서 깨진다
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+@Repeatable(Projections.class)
+public @interface Projection {
+
+    /**
+     * 생성할 클래스 이름 (DTO와 같은 패키지)
+     */
+    String name();
+
+    /**
+     * from 엔티티
+     */
+    Class<?> root();
+
+    /**
+     * from 엔티티 별칭
+     */
+    String alias();
+
+    /**
+     * 조인 목록 "경로 별칭" (예: "o.member m", "o.orderItems oi"), 컬렉션은 원소 타입으로 이어진다
+     */
+    String[] joins() default {};
+
+    /**
+     * select 목록 "별칭.필드[.필드]" -> 순서대로 DTO 생성자 파라미터에 대응
+     */
+    String[] select();
+}
@@ -0,0 +1,14 @@
+package jpabook.jpashop.projection;
+
+import java.lang.annotation.*;
+
+/**
+ * 하나의 DTO에 여러 {@link Projection} (from 엔티티가 다른 조회)
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Projections {
+
+    Projection[] value();
+}
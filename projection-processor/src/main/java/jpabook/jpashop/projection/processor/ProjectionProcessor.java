@@ -0,0 +1,285 @@
+package jpabook.jpashop.projection.processor;
+
+import jpabook.jpashop.projection.Projection;
+import jpabook.jpashop.projection.Projections;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * {@link Projection}이 붙은 DTO마다 매퍼 클래스를 생성
+ * - from/join 별칭의 엔티티 타입에서 필드를 따라가며 select 경로마다 타입을 구한다
+ * - 경로 타입을 순서대로 받을 수 있는 DTO 생성자를 찾아서 map()에서 캐스트 + new로 직접 호출
+ * - 없는 필드, 컬렉션 select, 맞는 생성자가 없으면 컴파일 에러
+ * gradle 증분 컴파일에는 aggregating으로 등록 (META-INF/gradle/incremental.annotation.processors)
+ * -> root 엔티티는 SOURCE 어노테이션 값으로만 참조되어 DTO 클래스 파일에 의존성이 남지 않으므로
+ *    isolating이면 엔티티 필드를 바꿔도 매퍼를 다시 만들지 않는다
+ */
+@SupportedAnnotationTypes({"jpabook.jpashop.projection.Projection", "jpabook.jpashop.projection.Projections"})
+public class ProjectionProcessor extends AbstractProcessor {
+
+    private static final String ENTITY = "javax.persistence.Entity";
+
+    private Elements elements;
+    private Types types;
+    private Filer filer;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<Element> dtos = new LinkedHashSet<>(roundEnv.getElementsAnnotatedWith(Projection.class));
+        dtos.addAll(roundEnv.getElementsAnnotatedWith(Projections.class));
+        for (Element dto : dtos) {
+            for (AnnotationMirror projection : projections(dto)) {
+                try {
+                    generate((TypeElement) dto, projection);
+                } catch (ProjectionException e) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), dto, projection);
+                }
+            }
+        }
+        return true;
+    }
+
+    //@Projection 하나 또는 @Projections 안의 여러개
+    private List<AnnotationMirror> projections(Element dto) {
+        List<AnnotationMirror> result = new ArrayList<>();
+        for (AnnotationMirror mirror : dto.getAnnotationMirrors()) {
+            String type = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (type.equals(Projection.class.getCanonicalName())) {
+                result.add(mirror);
+            } else if (type.equals(Projections.class.getCanonicalName())) {
+                for (AnnotationValue value : list(mirror, "value")) {
+                    result.add((AnnotationMirror) value.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private void generate(TypeElement dto, AnnotationMirror projection) {
+        String name = string(projection, "name");
+        TypeElement root = (TypeElement) ((DeclaredType) value(projection, "root")).asElement();
+        String alias = string(projection, "alias");
+
+        //별칭 -> 엔티티 타입
+        Map<String, TypeMirror> aliases = new HashMap<>();
+        aliases.put(alias, root.asType());
+        StringBuilder from = new StringBuilder(entityName(root)).append(' ').append(alias);
+        for (AnnotationValue value : list(projection, "joins")) {
+            String join = ((String) value.getValue()).trim();
+            String[] parts = join.split("\\s+");
+            if (parts.length != 2) {
+                throw new ProjectionException("join은 \"경로 별칭\" 형식이어야 합니다: " + join);
+            }
+            if (aliases.containsKey(parts[1])) {
+                throw new ProjectionException("중복된 별칭입니다: " + parts[1]);
+            }
+            aliases.put(parts[1], elementType(resolve(parts[0], aliases)));
+            from.append(" join ").append(parts[0]).append(' ').append(parts[1]);
+        }
+
+        List<String> selects = new ArrayList<>();
+        List<TypeMirror> selectTypes = new ArrayList<>();
+        for (AnnotationValue value : list(projection, "select")) {
+            String path = ((String) value.getValue()).trim();
+            TypeMirror type = resolve(path, aliases);
+            if (isCollection(type)) {
+                throw new ProjectionException("컬렉션은 select할 수 없습니다 (join으로 펼쳐야 합니다): " + path);
+            }
+            selects.add(path);
+            selectTypes.add(type);
+        }
+        if (selects.size() < 2) {
+            throw new ProjectionException("select는 2개 이상이어야 합니다 (결과가 Object[] row)");
+        }
+
+        ExecutableElement constructor = findConstructor(dto, selectTypes);
+        write(dto, name, String.join(", ", selects), from.toString(), constructor);
+    }
+
+    //"별칭.필드.필드" -> 마지막 필드 타입
+    private TypeMirror resolve(String path, Map<String, TypeMirror> aliases) {
+        String[] segments = path.split("\\.");
+        TypeMirror type = aliases.get(segments[0]);
+        if (type == null) {
+            throw new ProjectionException("알 수 없는 별칭입니다: " + path);
+        }
+        for (int i = 1; i < segments.length; i++) {
+            if (type.getKind() != TypeKind.DECLARED || isCollection(type)) {
+                throw new ProjectionException(path + ": " + segments[i - 1] + "에서 더 따라갈 수 없습니다");
+            }
+            type = field((TypeElement) types.asElement(type), segments[i], path).asType();
+        }
+        return type;
+    }
+
+    //상위 클래스 필드까지 (Book -> Item)
+    private VariableElement field(TypeElement type, String name, String path) {
+        for (TypeElement t = type; t != null; t = superclass(t)) {
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(name) && !field.getModifiers().contains(Modifier.STATIC)) {
+                    return field;
+                }
+            }
+        }
+        throw new ProjectionException(path + ": " + type.getSimpleName() + "에 " + name + " 필드가 없습니다");
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
+    }
+
+    private boolean isCollection(TypeMirror type) {
+        TypeMirror collection = types.erasure(elements.getTypeElement(Collection.class.getName()).asType());
+        return type.getKind() == TypeKind.DECLARED && types.isAssignable(types.erasure(type), collection);
+    }
+
+    //컬렉션 조인이면 원소 타입 (o.orderItems oi -> OrderItem)
+    private TypeMirror elementType(TypeMirror type) {
+        if (!isCollection(type)) {
+            return type;
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if (arguments.size() != 1) {
+            throw new ProjectionException("컬렉션 원소 타입을 알 수 없습니다: " + type);
+        }
+        return arguments.get(0);
+    }
+
+    private ExecutableElement findConstructor(TypeElement dto, List<TypeMirror> selectTypes) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(dto.getEnclosedElements())) {
+            List<? extends VariableElement> parameters = constructor.getParameters();
+            if (constructor.getModifiers().contains(Modifier.PRIVATE) || parameters.size() != selectTypes.size()) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < parameters.size() && matches; i++) {
+                matches = types.isAssignable(box(selectTypes.get(i)), box(parameters.get(i).asType()));
+            }
+            if (matches) {
+                return constructor;
+            }
+        }
+        throw new ProjectionException(dto.getSimpleName() + "에 select 타입 ("
+                + selectTypes.stream().map(TypeMirror::toString).collect(Collectors.joining(", "))
+                + ")을 받는 생성자가 없습니다");
+    }
+
+    private TypeMirror box(TypeMirror type) {
+        return type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) type).asType() : type;
+    }
+
+    //@Entity(name = ...)이 있으면 그 이름, 없으면 클래스 이름
+    private String entityName(TypeElement root) {
+        for (AnnotationMirror mirror : root.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(ENTITY)) {
+                String name = string(mirror, "name");
+                return name.isEmpty() ? root.getSimpleName().toString() : name;
+            }
+        }
+        throw new ProjectionException(root.getSimpleName() + "는 @Entity가 아닙니다");
+    }
+
+    private void write(TypeElement dto, String name, String select, String from, ExecutableElement constructor) {
+        String packageName = elements.getPackageOf(dto).getQualifiedName().toString();
+        String dtoName = dto.getQualifiedName().toString();
+        List<? extends VariableElement> parameters = constructor.getParameters();
+        try {
+            JavaFileObject file = filer.createSourceFile(packageName.isEmpty() ? name : packageName + "." + name, dto);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                if (!packageName.isEmpty()) {
+                    out.printf("package %s;%n%n", packageName);
+                }
+                out.printf("import java.util.ArrayList;%n");
+                out.printf("import java.util.List;%n");
+                out.printf("import javax.annotation.processing.Generated;%n%n");
+                out.printf("/**%n * %s 프로젝션 (%s에서 생성, 직접 수정하지 말 것)%n */%n",
+                        dto.getSimpleName(), ProjectionProcessor.class.getSimpleName());
+                out.printf("@Generated(\"%s\")%n", ProjectionProcessor.class.getName());
+                out.printf("public final class %s {%n%n", name);
+                out.printf("    public static final String SELECT = \"%s\";%n", escape(select));
+                out.printf("    public static final String FROM = \"%s\";%n", escape(from));
+                out.printf("    public static final String QUERY = \"select \" + SELECT + \" from \" + FROM;%n%n");
+                out.printf("    private %s() {%n    }%n%n", name);
+
+                out.printf("    public static %s map(Object[] row) {%n", dtoName);
+                out.printf("        return new %s(", dtoName);
+                for (int i = 0; i < parameters.size(); i++) {
+                    out.printf("%n                (%s) row[%d]%s", types.erasure(box(parameters.get(i).asType())), i,
+                            i < parameters.size() - 1 ? "," : ");");
+                }
+                out.printf("%n    }%n%n");
+
+                out.printf("    public static List<%s> mapAll(List<Object[]> rows) {%n", dtoName);
+                out.printf("        List<%s> result = new ArrayList<>(rows.size());%n", dtoName);
+                out.printf("        for (Object[] row : rows) {%n");
+                out.printf("            result.add(map(row));%n");
+                out.printf("        }%n");
+                out.printf("        return result;%n");
+                out.printf("    }%n");
+                out.printf("}%n");
+            }
+        } catch (IOException e) {
+            throw new ProjectionException(name + " 생성 실패: " + e.getMessage());
+        }
+    }
+
+    private Object value(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        throw new ProjectionException(name + " 값이 없습니다");
+    }
+
+    private String string(AnnotationMirror mirror, String name) {
+        return (String) value(mirror, name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<? extends AnnotationValue> list(AnnotationMirror mirror, String name) {
+        return (List<? extends AnnotationValue>) value(mirror, name);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static class ProjectionException extends RuntimeException {
+        private ProjectionException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package jpabook.jpashop.projection.processor;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+/**
+ * 프로세서를 javac로 직접 실행
+ * - javax.persistence는 테스트 클래스패스에 없으므로 @Entity는 같은 이름의 소스로 넣는다
+ */
+public class ProjectionProcessorTest {
+
+    private static final JavaFileObject ENTITY = JavaFileObjects.forSourceLines("javax.persistence.Entity",
+            "package javax.persistence;",
+            "public @interface Entity {",
+            "    String name() default \"\";",
+            "}");
+
+    private static final JavaFileObject MEMBER = JavaFileObjects.forSourceLines("test.Member",
+            "package test;",
+            "@javax.persistence.Entity",
+            "public class Member {",
+            "    private Long id;",
+            "    private String name;",
+            "    private java.util.List<Order> orders;",
+            "}");
+
+    private static final JavaFileObject ORDER = JavaFileObjects.forSourceLines("test.Order",
+            "package test;",
+            "@javax.persistence.Entity(name = \"Orders\")",
+            "public class Order {",
+            "    private Long id;",
+            "    private Member member;",
+            "}");
+
+    @Test
+    public void 매퍼_생성() throws Exception {
+        //when
+        Compilation compilation = compile(dto(
+                "joins = \"o.member m\", select = {\"o.id\", \"m.name\"})",
+                "public OrderDto(Long orderId, String name) {}"));
+
+        //then
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("test.OrderDtoProjection")
+                .contentsAsUtf8String().contains("FROM = \"Orders o join o.member m\"");
+        assertThat(compilation).generatedSourceFile("test.OrderDtoProjection")
+                .contentsAsUtf8String().contains("SELECT = \"o.id, m.name\"");
+    }
+
+    @Test
+    public void 없는_필드는_컴파일_에러() throws Exception {
+        //when
+        Compilation compilation = compile(dto(
+                "joins = \"o.member m\", select = {\"o.id\", \"m.nickname\"})",
+                "public OrderDto(Long orderId, String name) {}"));
+
+        //then
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("m.nickname: Member에 nickname 필드가 없습니다");
+    }
+
+    @Test
+    public void 컬렉션_select는_컴파일_에러() throws Exception {
+        //when
+        Compilation compilation = compile(dto(
+                "joins = \"o.member m\", select = {\"o.id\", \"m.orders\"})",
+                "public OrderDto(Long orderId, java.util.List<Order> orders) {}"));
+
+        //then
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("컬렉션은 select할 수 없습니다 (join으로 펼쳐야 합니다): m.orders");
+    }
+
+    @Test
+    public void 맞는_생성자가_없으면_컴파일_에러() throws Exception {
+        //when: select 순서와 생성자 파라미터 순서가 다르다
+        Compilation compilation = compile(dto(
+                "joins = \"o.member m\", select = {\"o.id\", \"m.name\"})",
+                "public OrderDto(String name, Long orderId) {}"));
+
+        //then
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("OrderDto에 select 타입 (java.lang.Long, java.lang.String)을 받는 생성자가 없습니다");
+    }
+
+    private static Compilation compile(JavaFileObject dto) {
+        return javac().withProcessors(new ProjectionProcessor()).compile(ENTITY, MEMBER, ORDER, dto);
+    }
+
+    private static JavaFileObject dto(String projection, String constructor) {
+        return JavaFileObjects.forSourceLines("test.OrderDto",
+                "package test;",
+                "@jpabook.jpashop.projection.Projection(name = \"OrderDtoProjection\", root = Order.class, alias = \"o\",",
+                "        " + projection,
+                "public class OrderDto {",
+                "    " + constructor,
+                "}");
+    }
+}
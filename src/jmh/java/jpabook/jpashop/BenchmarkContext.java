@@ -0,0 +1,154 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.StockService;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 벤치마크용 스프링 컨텍스트 (H2 메모리 DB) + 데이터 입력
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    private static final int MEMBERS = 100;
+    private static final int ITEMS = 100;
+    private static final int FLUSH_SIZE = 500;
+
+    private final ConfigurableApplicationContext context;
+    private final TransactionTemplate readOnlyTx;
+    private final Statistics statistics;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        this.statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public static BenchmarkContext start(String... properties) {
+        List<String> props = new ArrayList<>();
+        props.add("spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1");
+        props.add("spring.jpa.hibernate.ddl-auto=create");
+        props.add("spring.jpa.properties.hibernate.generate_statistics=true");
+        props.add("logging.level.org.hibernate.SQL=warn");
+        props.add("logging.level.org.hibernate.type=warn");
+        props.add("decorator.datasource.p6spy.enable-logging=false");
+        props.addAll(List.of(properties));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(props.toArray(new String[0]))
+                .run();
+        return new BenchmarkContext(context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 주문 orders건, 주문마다 상품 itemsPerOrder개
+     */
+    public void seed(int orders, int itemsPerOrder) {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        tx.executeWithoutResult(status -> {
+            EntityManager em = context.getBean(EntityManager.class);
+            List<Long> memberIds = new ArrayList<>();
+            List<Long> itemIds = new ArrayList<>();
+            for (int i = 0; i < MEMBERS; i++) {
+                Member member = new Member();
+                member.setName("member" + i);
+                member.setAddress(new Address("city" + i, "street" + i, "zip" + i));
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+            for (int i = 0; i < ITEMS; i++) {
+                Book book = Book.createBook("book" + i, 1000 + i, Integer.MAX_VALUE, "author" + i, "isbn" + i);
+                em.persist(book);
+                itemIds.add(book.getId());
+            }
+            em.flush();
+            em.clear();
+
+            int[] reserved = new int[ITEMS];
+            for (int i = 0; i < orders; i++) {
+                Member member = em.getReference(Member.class, memberIds.get(i % MEMBERS));
+                Delivery delivery = new Delivery();
+                delivery.setAddress(new Address("city", "street", "zip"));
+                OrderItem[] orderItems = new OrderItem[itemsPerOrder];
+                for (int j = 0; j < itemsPerOrder; j++) {
+                    Book book = em.find(Book.class, itemIds.get((i + j) % ITEMS));
+                    orderItems[j] = OrderItem.createOrderItem(book, book.getPrice(), j + 1);
+                    reserved[(i + j) % ITEMS] += j + 1;
+                }
+                em.persist(Order.createOrder(member, delivery, orderItems));
+                if ((i + 1) % FLUSH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+
+            //재고는 상품별로 합쳐서 주문과 같은 경로(StockService)로 차감
+            StockService stockService = context.getBean(StockService.class);
+            for (int i = 0; i < ITEMS; i++) {
+                stockService.reserve(em.find(Book.class, itemIds.get(i)), reserved[i]);
+            }
+        });
+    }
+
+    /**
+     * OSIV가 없으므로 지연 로딩이 되도록 읽기 전용 트랜잭션 안에서 실행
+     */
+    public <T> T inReadOnlyTx(Supplier<T> work) {
+        return readOnlyTx.execute(status -> work.get());
+    }
+
+    /**
+     * OSIV처럼 요청 하나 동안 영속성 컨텍스트를 열어두고 실행 (트랜잭션 없음 -> 지연 로딩은 트랜잭션 밖에서)
+     * readOnly면 ReadOnlySessionInterceptor처럼 default read-only + FlushMode.MANUAL
+     */
+    public <T> T inRequestSession(boolean readOnly, Supplier<T> work) {
+        EntityManagerFactory emf = context.getBean(EntityManagerFactory.class);
+        EntityManager em = emf.createEntityManager();
+        if (readOnly) {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+        }
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+        try {
+            return work.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            em.close();
+        }
+    }
+
+    /**
+     * 지금까지 실행된 JDBC statement 수 (hibernate statistics)
+     */
+    public long statementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,99 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.BenchmarkContext;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 하이버네이트 바이트코드 향상 전/후 비교
+ * - flush: 주문 orders건(+ 회원, 배송, 주문상품, 상품)이 영속성 컨텍스트에 있을 때 한건만 바꾸고 flush하는 비용
+ * - loadDeliveries: 배송 목록 조회시 실행되는 SQL 수 (향상 전에는 Delivery.order 때문에 배송마다 주문 조회)
+ *
+ * ./gradlew jmh -PjmhInclude=EnhancementBenchmark                      (향상 후)
+ * ./gradlew jmh -PjmhInclude=EnhancementBenchmark -PdisableEnhancement (향상 전)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnhancementBenchmark {
+
+    @Param({"1000"})
+    public int orders;
+
+    @Param({"2"})
+    public int itemsPerOrder;
+
+    private BenchmarkContext context;
+    private EntityManagerFactory emf;
+
+    /**
+     * 호출당 SQL 실행 수
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounter {
+        public long statements;
+    }
+
+    /**
+     * 주문을 모두 읽어서 영속성 컨텍스트에 올려둔 상태 (측정 대상 아님), 측정이 끝나면 롤백
+     */
+    @State(Scope.Thread)
+    public static class LoadedPersistenceContext {
+        private EntityManager em;
+
+        @Setup(Level.Invocation)
+        public void load(EnhancementBenchmark benchmark) {
+            em = benchmark.emf.createEntityManager();
+            em.getTransaction().begin();
+            List<Order> loaded = em.createQuery(
+                            "select distinct o from Order o" +
+                                    " join fetch o.member m" +
+                                    " join fetch o.delivery d" +
+                                    " join fetch o.orderItems oi" +
+                                    " join fetch oi.item i", Order.class)
+                    .getResultList();
+            loaded.get(0).setStatus(OrderStatus.CANCEL); //변경은 한건만
+        }
+
+        @TearDown(Level.Invocation)
+        public void rollback() {
+            em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(orders, itemsPerOrder);
+        emf = context.getBean(EntityManagerFactory.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void flush(LoadedPersistenceContext loaded) {
+        loaded.em.flush();
+    }
+
+    @Benchmark
+    public List<Delivery> loadDeliveries(SqlCounter counter) {
+        EntityManager em = context.getBean(EntityManager.class);
+        long before = context.statementCount();
+        List<Delivery> deliveries = context.inReadOnlyTx(() ->
+                em.createQuery("select d from Delivery d", Delivery.class).getResultList());
+        counter.statements += context.statementCount() - before;
+        return deliveries;
+    }
+}
@@ -0,0 +1,106 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.BenchmarkContext;
+import jpabook.jpashop.repository.order.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 API(v3 ~ v6)의 조회 전략 비교
+ * - 처리량(Throughput) + 지연시간 분포(SampleTime, p50/p90/p99...)
+ * - 할당량은 gc 프로파일러(build.gradle), SQL 실행 수는 호출당 statements 보조 카운터
+ *
+ * ./gradlew jmh -PjmhInclude=OrderQueryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderQueryBenchmark {
+
+    @Param({"1000"})
+    public int orders;
+
+    @Param({"2"})
+    public int itemsPerOrder;
+
+    private BenchmarkContext context;
+    private OrderRepository orderRepository;
+    private OrderQueryRepository orderQueryRepository;
+    private OrderApiController orderApiController;
+
+    /**
+     * 호출당 SQL 실행 수
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounter {
+        public long statements;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(orders, itemsPerOrder);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        orderApiController = context.getBean(OrderApiController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //v3: 컬렉션 fetch join + distinct
+    @Benchmark
+    public List<?> v3_findAllWithItem(SqlCounter counter) {
+        return measure(counter, () -> orderRepository.findAllWithItem().stream()
+                .map(OrderApiController.OrderDto::new)
+                .collect(Collectors.toList()));
+    }
+
+    //v3.1: ToOne fetch join + 페이징 + batch_fetch_size
+    @Benchmark
+    public List<?> v3_1_findAllWithMemberDelivery(SqlCounter counter) {
+        return measure(counter, () -> orderRepository.findAllWithMemberDelivery(0, orders).stream()
+                .map(OrderApiController.OrderDto::new)
+                .collect(Collectors.toList()));
+    }
+
+    //v4: DTO 직접 조회 + 주문마다 orderItems 조회 (1 + N)
+    @Benchmark
+    public List<OrderQueryDto> v4_findOrderQueryDtos(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findOrderQueryDtos());
+    }
+
+    //v4.1: v4와 같은 쿼리를 주문별로 동시에 실행
+    @Benchmark
+    public List<OrderQueryDto> v4_1_findOrderQueryDtos_parallel(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findOrderQueryDtos_parallel());
+    }
+
+    //v5: DTO 직접 조회 + orderItems in 쿼리 (1 + 1)
+    @Benchmark
+    public List<OrderQueryDto> v5_findAllByDto_optimization(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_optimization());
+    }
+
+    //v6: flat 조인 한번(order by o.id) + 한 번 훑으면서 주문별로 접기
+    @Benchmark
+    public List<OrderQueryDto> v6_findAllByDto_flat(SqlCounter counter) {
+        return measure(counter, () -> orderApiController.ordersV6(null));
+    }
+
+    private <T> T measure(SqlCounter counter, Supplier<T> work) {
+        long before = context.statementCount();
+        T result = context.inReadOnlyTx(work);
+        counter.statements += context.statementCount() - before;
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.BenchmarkContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 하나에서 주문 10,000건 목록을 만들 때 영속성 컨텍스트 모드별 힙 사용량 비교
+ * - false: 기존 OSIV (엔티티마다 변경 감지용 스냅샷)
+ * - true: ReadOnlySessionInterceptor (default read-only + FlushMode.MANUAL, 스냅샷 없음)
+ * 요청당 힙 할당량은 gc 프로파일러의 gc.alloc.rate.norm (B/op)
+ *
+ * ./gradlew jmh -PjmhInclude=ReadOnlySessionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlySessionBenchmark {
+
+    @Param({"10000"})
+    public int orders;
+
+    @Param({"2"})
+    public int itemsPerOrder;
+
+    @Param({"false", "true"})
+    public boolean readOnly;
+
+    private BenchmarkContext context;
+    private OrderApiController orderApiController;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(orders, itemsPerOrder);
+        orderApiController = context.getBean(OrderApiController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //v3.1: ToOne fetch join + orderItems/item은 트랜잭션 밖에서 지연 로딩 (batch_fetch_size)
+    @Benchmark
+    public List<?> v3_1_ordersPage() {
+        return context.inRequestSession(readOnly, () -> orderApiController.ordersV3_page(0, orders));
+    }
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.BenchmarkContext;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 목록(v5 응답) 직렬화 포맷 비교: JSON / Smile(공유 문자열 참조) / CBOR
+ * - 주문 10k건을 한번 조회해두고 인코딩(DTO -> byte[]), 디코딩(byte[] -> JsonNode)만 측정 -> 호출당 시간 = 주문 10k건당 CPU
+ * - 응답 크기(bytes on the wire)는 encode의 보조 카운터(·bytes)로 결과 표에 같이 나온다 (json 행과 비교)
+ * - ObjectMapper는 애플리케이션 메시지 컨버터에서 꺼내서 실제 응답과 같은 설정
+ *
+ * ./gradlew jmh -PjmhInclude=WireFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WireFormatBenchmark {
+
+    @Param({"10000"})
+    public int orders;
+
+    @Param({"2"})
+    public int itemsPerOrder;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    private BenchmarkContext context;
+    private List<OrderQueryDto> result;
+    private ObjectMapper mapper;
+    private byte[] encoded;
+
+    /**
+     * 인코딩 결과 크기, 누적하지 않고 호출마다 덮어쓴다 -> 응답 한번의 크기
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start();
+        context.seed(orders, itemsPerOrder);
+        OrderQueryRepository orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        result = context.inReadOnlyTx(() -> orderQueryRepository.findAllByDto_optimization());
+
+        mapper = mapper(format);
+        encoded = mapper.writeValueAsBytes(result);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize size) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(result);
+        size.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public JsonNode decode() throws IOException {
+        return mapper.readTree(encoded);
+    }
+
+    private ObjectMapper mapper(String format) {
+        switch (format) {
+            case "json":
+                return context.getBean(ObjectMapper.class);
+            case "smile":
+                return context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+            case "cbor":
+                return context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+            default:
+                throw new IllegalArgumentException("format: " + format);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.BenchmarkContext;
+import jpabook.jpashop.domain.item.Item;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 스레드 8개가 상품 하나의 재고를 동시에 차감할 때 처리량 비교 (주문 트랜잭션 하나 = 상품 조회 + 재고 1 차감)
+ * - false: DB 조건부 update -> 같은 row 락을 커밋까지 잡고 있어서 트랜잭션이 한줄로 선다
+ * - true: StripedStockCounter (jpashop.stock.striped-counter.enabled) -> 메모리 CAS, DB 반영은 reconcile 주기마다
+ * 재고는 Integer.MAX_VALUE로 시작하므로 측정 중에 바닥나지 않는다
+ *
+ * ./gradlew jmh -PjmhInclude=StockReservationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class StockReservationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean striped;
+
+    private BenchmarkContext context;
+    private StockService stockService;
+    private EntityManager em;
+    private TransactionTemplate tx;
+    private Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("jpashop.stock.striped-counter.enabled=" + striped);
+        context.seed(0, 0);
+        stockService = context.getBean(StockService.class);
+        em = context.getBean(EntityManager.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        itemId = context.inReadOnlyTx(() -> em.createQuery("select min(i.id) from Item i", Long.class).getSingleResult());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void reserveHotItem() {
+        tx.executeWithoutResult(status -> stockService.reserve(em.find(Item.class, itemId), 1));
+    }
+}
@@ -2,6 +2,7 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.StockService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,6 +38,7 @@ public class InitDb {
     @RequiredArgsConstructor
     static class InitService {
         private final EntityManager em;
+        private final StockService stockService; //재고 차감은 주문과 같은 경로로
 
         public void dbInit1() {
             Member member = createMember("userA", "서울", "1", "1111");
@@ -48,6 +50,8 @@ public class InitDb {
             Book book2 = createBook("JPA2 BOOK", 20000, 100);
             em.persist(book2);
 
+            stockService.reserve(book1, 1);
+            stockService.reserve(book2, 2);
             OrderItem orderItem1 = OrderItem.createOrderItem(book1, 10000, 1);
             OrderItem orderItem2 = OrderItem.createOrderItem(book2, 20000, 2);
             Order order = Order.createOrder(member, createDelivery(member), orderItem1, orderItem2);
@@ -67,6 +71,8 @@ public class InitDb {
 
             Delivery delivery = createDelivery(member);
 
+            stockService.reserve(book1, 3);
+            stockService.reserve(book2, 4);
             OrderItem orderItem1 = OrderItem.createOrderItem(book1, 20000, 3);
             OrderItem orderItem2 = OrderItem.createOrderItem(book2, 40000, 4);
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
@@ -4,7 +4,11 @@ import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableRetry //@Retryable이 @Transactional 바깥에서 실행됨 -> 재시도마다 새 트랜잭션
+@EnableScheduling
 @SpringBootApplication
 public class JpashopApplication {
 
@@ -0,0 +1,82 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemSalesSketch;
+import jpabook.jpashop.repository.ItemSalesSketch.ItemSales;
+import jpabook.jpashop.service.ItemService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private static final int MAX_BEST_SELLERS = 100;
+
+    private final ItemService itemService;
+    private final ItemSalesSketch itemSalesSketch;
+
+    /**
+     * 많이 팔린 상품 top-K
+     * - 순위와 판매량은 메모리 스케치(ItemSalesSketch)에서 추정, DB는 상품 이름만 in 쿼리 한번
+     * - sold는 최근 판매일수록 가중치가 큰 추정치 (halfLife마다 절반), 실제보다 최대 error만큼 클 수 있음
+     */
+    @GetMapping("/api/items/best-sellers")
+    public Result<List<BestSellerDto>> bestSellers(@RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<ItemSales> top = itemSalesSketch.top(Math.min(Math.max(limit, 1), MAX_BEST_SELLERS));
+
+        Map<Long, Item> items = itemService.findItems(top.stream().map(ItemSales::getItemId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<BestSellerDto> result = top.stream()
+                .filter(s -> items.containsKey(s.getItemId())) //삭제된 상품 제외
+                .map(s -> new BestSellerDto(s.getItemId(), items.get(s.getItemId()).getName(),
+                        Math.round(s.getCount()), Math.round(s.getError())))
+                .collect(Collectors.toList());
+        return new Result<>(result.size(), result);
+    }
+
+    //여러 상품을 id로 한번에 조회 -> id마다 em.find 대신 batch 단위 in 쿼리, 요청한 id 순서대로
+    @GetMapping("/api/items")
+    public Result<List<ItemDto>> itemsByIds(@RequestParam("ids") List<Long> ids) {
+        List<ItemDto> result = itemService.findMultiple(MultiGetIds.validate(ids)).stream()
+                .map(i -> new ItemDto(i.getId(), i.getName(), i.getPrice(), i.getStockQuantity()))
+                .collect(Collectors.toList());
+        return new Result<>(result.size(), result);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T> {
+        private int count;
+        private T data;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BestSellerDto {
+        private Long itemId;
+        private String name;
+        private long sold; //판매량 추정치
+        private long error; //최대 과대 추정량
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ItemDto {
+        private Long itemId;
+        private String name;
+        private int price;
+        private int stockQuantity;
+    }
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop.api;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * JSON을 직접 쓰는 경로(jpashop.direct-json)를 탈지 판단
+ * - Accept에서 가장 우선인 타입이 JSON과 호환될 때만 -> Smile/CBOR를 원하면 메시지 컨버터 경로로
+ */
+final class JsonAccept {
+
+    private JsonAccept() {
+    }
+
+    static boolean prefersJson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (!StringUtils.hasText(accept)) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            return mediaTypes.isEmpty() || MediaType.APPLICATION_JSON.isCompatibleWith(mediaTypes.get(0));
+        } catch (InvalidMediaTypeException e) {
+            return false; //컨버터 경로에서 406으로 처리
+        }
+    }
+}
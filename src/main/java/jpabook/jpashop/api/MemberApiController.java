@@ -1,7 +1,9 @@
 package jpabook.jpashop.api;
 
+import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.web.ReadOnlySession;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +21,7 @@ public class MemberApiController {
     private final MemberService memberService;
 
     //문제점 -> 엔티티의 모든 값이 노출, api별로 필요한 값들이 다르므로 모든 api를 충족시킬 수 없음
+    @ReadOnlySession
     @GetMapping("api/v1/members")
     public List<Member> memberV1() {
         List<Member> members = memberService.findMembers();
@@ -27,6 +30,7 @@ public class MemberApiController {
 
     //Result로 한번 감싸야한다 -> Object타입으로 반환해주고 데이터 필드 값은 List가 나간다
     //List를 바로 컬렉션으로 바로 return하면 JSON 배열타입으로 반환되어 유연성이 떨어진다
+    @ReadOnlySession
     @GetMapping("api/v2/members")
     public Result memberV2() {
         //Member List를 MemberDto List로 변환
@@ -38,6 +42,15 @@ public class MemberApiController {
         return new Result(collect.size(), collect);
     }
 
+    //여러 회원을 id로 한번에 조회 -> id마다 em.find 대신 batch 단위 in 쿼리, 요청한 id 순서대로
+    @GetMapping("/api/members")
+    public Result<List<MemberLookupDto>> membersByIds(@RequestParam("ids") List<Long> ids) {
+        List<MemberLookupDto> result = memberService.findMultiple(MultiGetIds.validate(ids)).stream()
+                .map(m -> new MemberLookupDto(m.getId(), m.getName(), m.getAddress()))
+                .collect(Collectors.toList());
+        return new Result<>(result.size(), result);
+    }
+
     @Data
     @AllArgsConstructor
     static class Result<T> {
@@ -51,6 +64,14 @@ public class MemberApiController {
         private String name;
     }
 
+    @Data
+    @AllArgsConstructor
+    static class MemberLookupDto {
+        private Long memberId;
+        private String name;
+        private Address address;
+    }
+
 
     @PostMapping("/api/v1/members")
     public CreateMemberResponse saveMemberV1(@RequestBody @Valid Member member) {
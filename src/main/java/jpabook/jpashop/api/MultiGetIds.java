@@ -0,0 +1,27 @@
+package jpabook.jpashop.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * 여러 id 조회 API(?ids=1,2,3)의 id 목록 검증
+ */
+final class MultiGetIds {
+
+    static final int MAX_IDS = 1000; //한번에 최대 1000개
+
+    private MultiGetIds() {
+    }
+
+    static List<Long> validate(List<Long> ids) {
+        if (ids.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids가 비어있습니다.");
+        }
+        if (ids.size() > MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids는 최대 " + MAX_IDS + "개까지 조회할 수 있습니다.");
+        }
+        return ids;
+    }
+}
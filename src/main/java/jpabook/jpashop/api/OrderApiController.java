@@ -1,34 +1,75 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.OrderCancelFilter;
 import jpabook.jpashop.repository.order.OrderRepository;
 import jpabook.jpashop.repository.order.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderFlatRowFolder;
+import jpabook.jpashop.repository.order.query.OrderJsonQueryRepository;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.BulkCancelService;
+import jpabook.jpashop.service.BulkOrderResult;
+import jpabook.jpashop.service.BulkOrderService;
+import jpabook.jpashop.service.CartLineDto;
+import jpabook.jpashop.service.OrderLineDto;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.web.ReadOnlySession;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.*;
-
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_FLUSH_INTERVAL = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderJsonQueryRepository orderJsonQueryRepository;
+    private final ObjectMapper objectMapper;
+    private final BulkOrderService bulkOrderService;
+    private final BulkCancelService bulkCancelService;
+    private final OrderService orderService;
 
+    @ReadOnlySession
     @GetMapping("/api/v1/orders")
     public List<Order> orderV1() {
         List<Order> all = orderRepository.findAllByString(new OrderSearch());
@@ -42,6 +83,7 @@ public class OrderApiController {
         return all;
     }
 
+    @ReadOnlySession
     @GetMapping("/api/v2/orders")
     public List<OrderDto> ordersV2() {
         List<Order> orders = orderRepository.findAllByString(new OrderSearch());
@@ -51,7 +93,17 @@ public class OrderApiController {
         return collect;
     }
 
+    //여러 주문을 id로 한번에 조회 -> 주문은 batch 단위 in 쿼리, member/delivery/orderItems는 batch_fetch_size로 조회
+    @ReadOnlySession
+    @GetMapping("/api/orders")
+    public List<OrderDto> ordersByIds(@RequestParam("ids") List<Long> ids) {
+        return orderRepository.findMultiple(MultiGetIds.validate(ids)).stream()
+                .map(OrderDto::new)
+                .collect(Collectors.toList());
+    }
+
     //JPA의 fetch 조인을 이용해서 객체 그래프만 찍으면 쿼리가 1번 -> 성능이 매우 향상
+    @ReadOnlySession
     @GetMapping("/api/v3/orders")
     public List<OrderDto> ordersV3() {
         List<Order> orders = orderRepository.findAllWithItem();
@@ -68,6 +120,7 @@ public class OrderApiController {
 
     //batch_fetch_size를 통해서 1 + n + m 에서 1 + 1 + 1로 최적화 (in 쿼리를 사용)
     //컬렉션 페치 조인은 페이징이 불가능하지만 이 방법은 페이징이 가능
+    @ReadOnlySession
     @GetMapping("/api/v3.1/orders")
     public List<OrderDto> ordersV3_page(
             @RequestParam(value = "offset", defaultValue = "0") int offset,
@@ -80,25 +133,245 @@ public class OrderApiController {
         return result;
     }
 
+    //keyset 페이징 모드 -> after 파라미터가 있으면 offset 대신 커서(마지막 주문 id) 다음부터 조회
+    //첫 페이지는 after= 로 비워서 요청하고, 응답의 next 값을 다음 요청의 after로 넘긴다 (마지막 페이지면 next = null)
+    @ReadOnlySession
+    @GetMapping(value = "/api/v3.1/orders", params = "after")
+    public OrderCursorResult<List<OrderDto>> ordersV3_cursor(
+            @RequestParam(value = "after") String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        validateLimit(limit);
+        //한 건 더 읽어서 다음 페이지가 있는지 판단 -> 마지막 페이지가 꽉 차도 빈 페이지를 가리키는 next가 나가지 않는다
+        List<Order> orders = orderRepository.findAllWithMemberDeliveryAfter(decodeCursor(after), limit + 1);
+        boolean hasNext = orders.size() > limit;
+        if (hasNext) {
+            orders = orders.subList(0, limit);
+        }
+
+        List<OrderDto> result = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+
+        String next = hasNext ? encodeCursor(orders.get(orders.size() - 1).getId()) : null;
+        return new OrderCursorResult<>(result, next);
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit은 1 이상이어야 합니다.");
+        }
+        if (limit > MAX_PAGE_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit은 최대 " + MAX_PAGE_LIMIT + "입니다.");
+        }
+    }
+
+    private static String encodeCursor(Long orderId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(orderId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null; //첫 페이지
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "잘못된 커서 값입니다.", e);
+        }
+    }
+
     @GetMapping("/api/v4/orders")
     public List<OrderQueryDto> ordersV4() {
         return orderQueryRepository.findOrderQueryDtos();
     }
 
+    //v4와 같은 응답, 주문별 orderItems 쿼리를 동시에 실행 (jpashop.order-query.parallelism)
+    @GetMapping("/api/v4.1/orders")
+    public List<OrderQueryDto> ordersV4_parallel() {
+        return orderQueryRepository.findOrderQueryDtos_parallel();
+    }
+
+    //jpashop.direct-json.enabled -> 같은 JSON을 JDBC row에서 응답으로 바로 쓰고 null 반환 (메시지 컨버터는 쓸 내용이 없음)
+    //Smile/CBOR 요청은 DTO + 메시지 컨버터
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> ordersV5() {
+    public List<OrderQueryDto> ordersV5(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (orderJsonQueryRepository.isEnabled() && JsonAccept.prefersJson(request)) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            orderJsonQueryRepository.writeOrders(response.getOutputStream());
+            return null;
+        }
         return orderQueryRepository.findAllByDto_optimization();
     }
 
+    //flat row를 order id 순으로 조회해서 한 번만 훑으면서 주문별로 접는다 (groupingBy 해싱/중간 객체 없음, 순서 유지)
+    //limit은 row가 아니라 주문 개수 기준
     @GetMapping("/api/v6/orders")
-    public List<OrderQueryDto> ordersV6() {
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
-                .collect(toList());
+    public List<OrderQueryDto> ordersV6(@RequestParam(value = "limit", required = false) Integer limit) {
+        if (limit == null) {
+            return orderQueryRepository.findAllByDto_flat().stream()
+                    .collect(OrderFlatRowFolder.toOrderQueryDtos());
+        }
+        validateLimit(limit);
+        return orderQueryRepository.findAllByDto_flat(limit);
+    }
+
+    //v6과 같은 조인을 커서로 읽으면서 주문 하나씩 NDJSON(한 줄에 JSON 하나)으로 바로 내려보냄
+    //전체 결과를 메모리에 올리지 않으므로 힙 사용량이 일정하고 첫 바이트가 바로 나간다
+    @GetMapping("/api/v6/orders/stream")
+    public void ordersV6_stream(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ObjectWriter writer = objectMapper.writerFor(OrderQueryDto.class)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            int[] written = {0};
+            orderQueryRepository.streamAllByDto_flat(order -> {
+                try {
+                    writer.writeValue(gen, order);
+                    //첫 주문은 바로, 이후에는 일정 개수마다 flush
+                    if (written[0]++ % STREAM_FLUSH_INTERVAL == 0) {
+                        gen.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (written[0] > 0) {
+                gen.writeRaw('\n');
+            }
+        }
+    }
+
+    /**
+     * 대량 주문 등록 -> 주문 라인마다 주문 하나, 청크마다 트랜잭션 한번, 청크 단위 배치 insert
+     * 청크가 실패하면 422 -> 본문의 orderIds는 이미 커밋된 주문, failedFromLine부터 다시 요청
+     */
+    @PostMapping("/api/orders/bulk")
+    public ResponseEntity<BulkOrderResponse> bulkOrder(@RequestBody @Valid BulkOrderRequest request) {
+        List<OrderLineDto> lines = request.getLines().stream()
+                .map(l -> new OrderLineDto(l.getMemberId(), l.getItemId(), l.getCount()))
+                .collect(Collectors.toList());
+
+        BulkOrderResult result = bulkOrderService.order(lines);
+        BulkOrderResponse response = new BulkOrderResponse(result.getOrderIds().size(), result.getOrderIds(),
+                result.getFailedChunk(), result.getFailedFromLine(), result.getError());
+        return ResponseEntity.status(result.isCompleted() ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY).body(response);
+    }
+
+    /**
+     * 장바구니 주문 -> 여러 상품을 주문 하나로, 트랜잭션 한번
+     */
+    @PostMapping("/api/orders/cart")
+    public CartOrderResponse cartOrder(@RequestBody @Valid CartOrderRequest request) {
+        List<CartLineDto> lines = request.getLines().stream()
+                .map(l -> new CartLineDto(l.getItemId(), l.getCount()))
+                .collect(Collectors.toList());
+
+        Long orderId = orderService.orderCart(request.getMemberId(), lines);
+        return new CartOrderResponse(orderId);
+    }
+
+    /**
+     * 대량 주문 취소 -> 조건(상태, 주문 기간, 회원)에 맞는 주문을 모두 취소하고 재고 복구
+     * 관리자 API (X-Admin-Token 필요, AdminApiInterceptor)
+     */
+    @PostMapping("/api/admin/orders/bulk-cancel")
+    public BulkCancelResponse bulkCancel(@RequestBody @Valid BulkCancelRequest request) {
+        OrderCancelFilter filter = new OrderCancelFilter();
+        filter.setStatus(request.getStatus());
+        filter.setMemberId(request.getMemberId());
+        filter.setOrderDateFrom(request.getOrderDateFrom());
+        filter.setOrderDateTo(request.getOrderDateTo());
+
+        return new BulkCancelResponse(bulkCancelService.cancel(filter));
+    }
+
+    @Data
+    static class BulkOrderRequest {
+        @NotEmpty
+        @Valid
+        private List<OrderLineRequest> lines;
+    }
+
+    @Data
+    static class OrderLineRequest {
+        @NotNull
+        private Long memberId;
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BulkOrderResponse {
+        private int count; //커밋된 주문 수
+        private List<Long> orderIds;
+        private Integer failedChunk;
+        private Integer failedFromLine;
+        private String error;
+    }
+
+    @Data
+    static class BulkCancelRequest {
+        private OrderStatus status;
+        private Long memberId;
+        private LocalDateTime orderDateFrom;
+        private LocalDateTime orderDateTo;
+
+        //조건 없이 전체 주문이 취소되는 것을 막는다
+        @AssertTrue(message = "회원 또는 주문 기간 조건이 필요합니다.")
+        @JsonIgnore
+        public boolean isFiltered() {
+            return memberId != null || orderDateFrom != null || orderDateTo != null;
+        }
+
+        //ORDER 외의 상태는 취소할 주문이 없으므로 0건 대신 400
+        @AssertTrue(message = "ORDER 상태의 주문만 취소할 수 있습니다.")
+        @JsonIgnore
+        public boolean isCancelableStatus() {
+            return status == null || status == OrderStatus.ORDER;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BulkCancelResponse {
+        private int canceled;
+    }
+
+    @Data
+    static class CartOrderRequest {
+        @NotNull
+        private Long memberId;
+        @NotEmpty
+        @Valid
+        private List<CartLineRequest> lines;
+    }
+
+    @Data
+    static class CartLineRequest {
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CartOrderResponse {
+        private Long orderId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class OrderCursorResult<T> {
+        private T data;
+        private String next; //다음 페이지 커서
     }
 
     @Getter
@@ -5,14 +5,20 @@ import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.repository.order.OrderSearch;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.repository.order.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderJsonQueryRepository;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.web.ReadOnlySession;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -30,12 +36,14 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderJsonQueryRepository orderJsonQueryRepository;
 
     /**
      * V1. 엔티티 직접 노출
      * - Hibernate5Module 모듈 등록, LAZY=null 처리
      * - 양방향 관계 문제 발생 -> @JsonIgnore
      */
+    @ReadOnlySession
     @GetMapping("/api/v1/simple-orders")
     public List<Order> ordersV1() {
         List<Order> all = orderRepository.findAllByString(new OrderSearch());
@@ -50,6 +58,7 @@ public class OrderSimpleApiController {
      * V2. 엔티티를 조회해서 DTO로 변환(fetch join 사용X)
      * - 단점: 지연로딩으로 쿼리 N번 호출
      */
+    @ReadOnlySession
     @GetMapping("api/v2/simple-orders")
     public Result ordersV2() {
         List<Order> orders = orderRepository.findAllByString(new OrderSearch());
@@ -69,6 +78,7 @@ public class OrderSimpleApiController {
      * - fetch join으로 쿼리 1번 호출
      * 참고: fetch join에 대한 자세한 내용은 JPA 기본편 참고(정말 중요함)
      */
+    @ReadOnlySession
     @GetMapping("api/v3/simple-orders")
     public Result ordersV3() {
         List<Order> orders = orderRepository.findAllWithMemberDelivery();
@@ -85,12 +95,30 @@ public class OrderSimpleApiController {
      * - select 절에서 원하는 데이터만 선택해서 조회 (V3와 차이)
      */
     @GetMapping("api/v4/simple-orders")
-    public Result ordersV4() {
+    public Result ordersV4(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        //jpashop.direct-json.enabled -> DTO 없이 JDBC row에서 응답으로 바로 쓰고 null 반환 (메시지 컨버터는 쓸 내용이 없음)
+        //Smile/CBOR 요청은 DTO + 메시지 컨버터
+        if (orderJsonQueryRepository.isEnabled() && JsonAccept.prefersJson(request)) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            orderJsonQueryRepository.writeSimpleOrders(response.getOutputStream());
+            return null;
+        }
         List<OrderSimpleQueryDto> orderDtos = orderSimpleQueryRepository.findOrderDtos();
 
         return new Result(orderDtos);
     }
 
+    /**
+     * V5. 요약 테이블(order_summary)에서 조회
+     * - 주문/취소/회원 이름 변경 시 같은 트랜잭션에서 미리 계산해둔 테이블 -> 조인 없이 쿼리 1번
+     */
+    @GetMapping("api/v5/simple-orders")
+    public Result ordersV5() {
+        List<OrderSimpleQueryDto> orderDtos = orderSimpleQueryRepository.findOrderSummaryDtos();
+
+        return new Result(orderDtos);
+    }
+
     @Data
     @AllArgsConstructor
     static class Result<T> {
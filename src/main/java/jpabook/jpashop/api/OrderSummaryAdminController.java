@@ -0,0 +1,37 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.OrderSummaryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 주문 요약 테이블(order_summary) 관리용 API (AdminApiInterceptor: X-Admin-Token 헤더 필요)
+ */
+@RestController
+@RequiredArgsConstructor
+public class OrderSummaryAdminController {
+
+    private final OrderSummaryService orderSummaryService;
+
+    //요약 테이블 전체 재생성
+    @PostMapping("/api/admin/order-summaries/rebuild")
+    public RebuildResponse rebuild() {
+        return new RebuildResponse(orderSummaryService.rebuild());
+    }
+
+    //원본 주문과 요약 테이블 비교
+    @GetMapping("/api/admin/order-summaries/check")
+    public OrderSummaryService.CheckResult check() {
+        return orderSummaryService.check();
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class RebuildResponse {
+        private int rebuilt;
+    }
+}
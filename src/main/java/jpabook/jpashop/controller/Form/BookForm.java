@@ -13,6 +13,7 @@ public class BookForm {
     private String name;
     private int price;
     private int stockQuantity;
+    private Integer originalStockQuantity; //수정 화면을 열었을 때의 재고
     private String author;
     private String isbn;
 
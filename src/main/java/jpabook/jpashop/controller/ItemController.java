@@ -5,6 +5,7 @@ import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.UpdateItemDto;
+import jpabook.jpashop.web.ReadOnlySession;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -48,6 +49,7 @@ public class ItemController {
     /**
      * 상품 목록
      */
+    @ReadOnlySession
     @GetMapping(value = "/items")
     public String list(Model model) {
         List<Item> items = itemService.findItems();
@@ -69,6 +71,7 @@ public class ItemController {
         form.setName(item.getName());
         form.setPrice(item.getPrice());
         form.setStockQuantity(item.getStockQuantity());
+        form.setOriginalStockQuantity(item.getStockQuantity());
         form.setAuthor(item.getAuthor());
         form.setIsbn(item.getIsbn());
 
@@ -96,7 +99,8 @@ public class ItemController {
     public String updateItem(@PathVariable Long itemId, @ModelAttribute("form") BookForm form) {
 
         //변경 감지
-        UpdateItemDto itemDto = new UpdateItemDto(itemId,form.getName(), form.getPrice(), form.getStockQuantity());
+        //재고는 화면을 연 뒤 변경한 양만 반영 -> 그 사이의 주문이 덮어써지지 않음
+        UpdateItemDto itemDto = new UpdateItemDto(itemId,form.getName(), form.getPrice(), form.getStockQuantity(), form.getOriginalStockQuantity());
 
         itemService.updateItem(itemDto);
         return "redirect:/items";
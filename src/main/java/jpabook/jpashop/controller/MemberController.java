@@ -4,6 +4,7 @@ import jpabook.jpashop.controller.Form.MemberForm;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.web.ReadOnlySession;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -44,6 +45,7 @@ public class MemberController {
         return "redirect:/";
     }
 
+    @ReadOnlySession
     @GetMapping(value = "/members")
     public String List(Model model) {
 
@@ -7,6 +7,7 @@ import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.web.ReadOnlySession;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -43,6 +44,7 @@ public class OrderController {
         return "redirect:/orders";
     }
 
+    @ReadOnlySession
     @GetMapping("/orders") //ModelAttribute("orderSearch")처럼 설정을 미리하면 model에 자동으로 orderSearch가 담긴다.
     public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
         List<Order> orders = orderService.findOrders(orderSearch);
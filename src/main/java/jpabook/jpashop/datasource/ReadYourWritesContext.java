@@ -0,0 +1,34 @@
+package jpabook.jpashop.datasource;
+
+/**
+ * 요청 안에서 쓰기 트랜잭션이 한번이라도 primary를 사용했는지 기록
+ * 이후 같은 요청의 읽기 전용 트랜잭션도 primary로 보내서, 복제 지연 때문에 방금 쓴 데이터가 안 보이는 일이 없게 한다
+ */
+public final class ReadYourWritesContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadYourWritesContext() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    //조회를 다른 스레드에 나눠 실행할 때 요청 스레드의 값을 그대로 넘긴다
+    public static void bind(boolean primaryRequired) {
+        if (primaryRequired) {
+            PRIMARY_REQUIRED.set(Boolean.TRUE);
+        } else {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    public static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+}
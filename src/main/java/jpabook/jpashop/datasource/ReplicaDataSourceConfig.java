@@ -0,0 +1,74 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * jpashop.datasource.replica.url이 있을 때만 primary/복제본 라우팅 DataSource를 등록한다 (application-replica.yml)
+ * primary, 복제본 커넥션 풀도 빈으로 등록 (풀 크기 조회, 풀 메트릭)
+ * -> p6spy가 풀까지 감싸면 SQL이 중복 집계되므로 decorator.datasource.exclude-beans로 제외 (application-replica.yml)
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.replica", name = "url")
+public class ReplicaDataSourceConfig {
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    public ReplicaDataSourceConfig(DataSourceProperties primaryProperties, ReplicaProperties replicaProperties) {
+        this.primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        this.replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(replicaProperties.getUrl());
+        replica.setUsername(replicaProperties.getUsername());
+        replica.setPassword(replicaProperties.getPassword());
+        replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+        replica.setReadOnly(true);
+
+        this.routingDataSource = new ReplicaRoutingDataSource(primary, replica, replicaProperties);
+    }
+
+    //풀은 빈으로 등록되었으므로 컨텍스트가 닫힐 때 스프링이 close
+    @Bean
+    public HikariDataSource primaryPool() {
+        return primary;
+    }
+
+    @Bean
+    public HikariDataSource replicaPool() {
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.datasource.replica.check-interval-ms:1000}")
+    public void checkReplica() {
+        routingDataSource.checkReplica();
+    }
+}
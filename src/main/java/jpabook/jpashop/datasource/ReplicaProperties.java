@@ -0,0 +1,31 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 읽기 전용 복제본 설정 (jpashop.datasource.replica.*)
+ * url이 없으면 복제본을 사용하지 않고 spring.datasource 하나로 동작한다
+ */
+@Component
+@ConfigurationProperties(prefix = "jpashop.datasource.replica")
+@Getter @Setter
+public class ReplicaProperties {
+
+    private String url;
+    private String username;
+    private String password;
+    private int maximumPoolSize = 10;
+
+    //복제 지연(ms)을 숫자 하나로 돌려주는 쿼리, 없으면 연결 가능 여부만 검사
+    //ex) PostgreSQL: select coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+    private String lagQuery;
+
+    //복제 지연이 이 값을 넘으면 읽기도 primary로 보낸다
+    private long maxLagMs = 1000;
+
+    //복제본 상태 검사 주기
+    private long checkIntervalMs = 1000;
+}
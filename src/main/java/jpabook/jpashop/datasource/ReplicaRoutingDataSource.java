@@ -0,0 +1,124 @@
+package jpabook.jpashop.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 복제본, 나머지는 primary로 보낸다
+ * - 트랜잭션의 readOnly 여부는 커넥션을 실제로 얻을 때 판단하므로 LazyConnectionDataSourceProxy로 감싸서 사용
+ *   (트랜잭션 시작 시점에는 아직 readOnly가 설정되지 않음 -> 첫 SQL을 실행할 때 커넥션을 얻도록 미룬다)
+ * - 복제 지연이 maxLagMs를 넘거나 복제본에 연결할 수 없으면 읽기도 primary로 보낸다
+ * - 같은 요청에서 쓰기 트랜잭션이 있었으면 이후 읽기도 primary (ReadYourWritesContext)
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaProperties properties;
+
+    private volatile boolean replicaAvailable = true;
+    private volatile long replicaLagMs = 0;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaProperties properties) {
+        this.primary = primary;
+        this.replica = replica;
+        this.properties = properties;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    public long getReplicaLagMs() {
+        return replicaLagMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (useReplica()) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                markReplica(false, "connection failed: " + e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (useReplica()) {
+            try {
+                return replica.getConnection(username, password);
+            } catch (SQLException e) {
+                markReplica(false, "connection failed: " + e.getMessage());
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    private boolean useReplica() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWritesContext.requirePrimary(); //쓰기 트랜잭션 -> 이후 같은 요청의 읽기도 primary
+            }
+            return false;
+        }
+        return replicaAvailable && !ReadYourWritesContext.isPrimaryRequired();
+    }
+
+    /**
+     * 복제본 상태 검사 -> 연결이 안되거나 지연이 maxLagMs를 넘으면 복제본을 사용하지 않는다
+     */
+    public void checkReplica() {
+        try (Connection con = replica.getConnection()) {
+            long lagMs = 0;
+            if (properties.getLagQuery() != null) {
+                try (Statement statement = con.createStatement();
+                     ResultSet rs = statement.executeQuery(properties.getLagQuery())) {
+                    lagMs = rs.next() ? rs.getLong(1) : Long.MAX_VALUE;
+                }
+            } else if (!con.isValid(1)) {
+                markReplica(false, "connection invalid");
+                return;
+            }
+            replicaLagMs = lagMs;
+            markReplica(lagMs <= properties.getMaxLagMs(), "lag " + lagMs + "ms");
+        } catch (SQLException e) {
+            markReplica(false, "check failed: " + e.getMessage());
+        }
+    }
+
+    private void markReplica(boolean available, String reason) {
+        if (replicaAvailable != available) {
+            if (available) {
+                log.info("replica available again ({}), routing read-only transactions to replica", reason);
+            } else {
+                log.warn("replica unavailable ({}), routing read-only transactions to primary", reason);
+            }
+        }
+        replicaAvailable = available;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeQuietly(replica);
+        closeQuietly(primary);
+    }
+
+    private static void closeQuietly(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
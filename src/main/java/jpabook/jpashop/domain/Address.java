@@ -1,11 +1,13 @@
 package jpabook.jpashop.domain;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 import javax.persistence.Embeddable;
 
 @Embeddable
 @Getter
+@EqualsAndHashCode //값 타입은 값으로 비교
 public class Address {
 
     private String city;
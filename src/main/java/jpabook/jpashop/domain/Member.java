@@ -3,6 +3,8 @@ package jpabook.jpashop.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -10,16 +12,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = Member.NAME_CONSTRAINT, columnNames = "name")) //이름 중복 방지 + 이름 조회 인덱스
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")
 @Getter
 @Setter
 public class Member {
 
+    public static final String NAME_CONSTRAINT = "uk_member_name";
+
     @Id
     @GeneratedValue
     @Column(name = "member_id")
     private Long id;
 
-//    @Column(unique = true) //유니크 제약 조건
     @NotEmpty
     private String name;
 
@@ -11,14 +11,21 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+//상태별 keyset 조회(status, order_id), 회원별 기간 조회(member_id, order_date), 기간 조회(order_date)
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_id", columnList = "status, order_id"),
+        @Index(name = "idx_orders_member_date", columnList = "member_id, order_date"),
+        @Index(name = "idx_orders_order_date", columnList = "order_date")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
 
+    //pooled 시퀀스 -> 50개씩 미리 할당받아서 persist마다 시퀀스 조회를 하지 않음 (대량 insert시 jdbc batch와 함께 사용)
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq_generator")
+    @SequenceGenerator(name = "orders_seq_generator", sequenceName = "orders_seq", allocationSize = 50)
     @Column(name = "order_id")
     private Long id;
 
@@ -77,16 +84,14 @@ public class Order {
     //==비즈니스 로직==//
 
     /**
-     * 주문 취소
+     * 상태만 CANCEL로 바꾼다 (재고 복구, 이벤트 없음)
+     * 주문 취소는 OrderService.cancelOrder로만 한다 -> 조건부 update, 재고 복구(StockService.release), 이벤트까지 처리
      */
-    public void cancel() {
+    public void markCanceled() {
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송 완료된 상품은 취소가 불가능 합니다");
         }
         this.setStatus(OrderStatus.CANCEL);
-        for (OrderItem orderItem : orderItems) {
-            orderItem.cancel(); // 주문된 제품에도 cancel을 각각 날려줌
-        }
     }
 
     //==조회 로직==//
@@ -10,13 +10,19 @@ import lombok.Setter;
 import javax.persistence.*;
 
 @Entity
+//주문별 상품 조회 -> (order_id, item_id, order_price, count)만으로 v5 in 쿼리, 상품별 합계를 테이블 접근 없이 처리
+@Table(indexes = {
+        @Index(name = "idx_order_item_order", columnList = "order_id, item_id, order_price, count"),
+        @Index(name = "idx_order_item_item", columnList = "item_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq_generator")
+    @SequenceGenerator(name = "order_item_seq_generator", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -33,21 +39,16 @@ public class OrderItem {
     private int count; //주문 수량
 
     //==생성 메서드==//
+    //재고는 차감하지 않는다 -> 호출하기 전에 StockService.reserve (엔티티에서 읽고 고쳐 쓰면 동시 주문시 초과 판매)
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
         orderItem.setItem(item);
         orderItem.setOrderPrice(orderPrice);
         orderItem.setCount(count);
 
-        item.removeStock(count);
         return orderItem;
     }
 
-    //==비즈니스 로직==//
-    public void cancel() {
-        getItem().addStock(count); //재고 수량을 원상 복구
-    }
-
     //==조회 로직==//
 
     /**
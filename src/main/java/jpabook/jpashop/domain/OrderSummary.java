@@ -0,0 +1,71 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 주문 목록 조회용 요약 테이블 (Order + Member + Delivery + OrderItem 합계를 미리 계산해서 저장)
+ * OrderSummaryService가 주문 생성/취소, 회원 이름 변경과 같은 트랜잭션 안에서 갱신한다
+ */
+@Entity
+@Table(name = "order_summary", indexes = @Index(name = "idx_order_summary_member", columnList = "member_id")) //회원 이름 변경시 일괄 update
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    private Long memberId;
+    private String memberName;
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address;
+
+    private int totalPrice; //주문 전체 가격
+    private int itemCount; //주문 상품 종류 수
+
+    //==생성 메서드==//
+    public static OrderSummary createOrderSummary(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.orderId = order.getId();
+        summary.update(order);
+        return summary;
+    }
+
+    //==비즈니스 로직==//
+    public void update(Order order) {
+        this.memberId = order.getMember().getId();
+        this.memberName = order.getMember().getName();
+        this.orderDate = order.getOrderDate();
+        this.status = order.getStatus();
+        this.address = order.getDelivery().getAddress();
+        this.totalPrice = order.getTotalPrice();
+        this.itemCount = order.getOrderItems().size();
+    }
+
+    //==조회 로직==//
+
+    /**
+     * 원본 주문과 값이 같은지 (정합성 검사)
+     */
+    public boolean matches(Order order) {
+        return Objects.equals(memberId, order.getMember().getId())
+                && Objects.equals(memberName, order.getMember().getName())
+                && Objects.equals(orderDate, order.getOrderDate())
+                && status == order.getStatus()
+                && Objects.equals(address, order.getDelivery().getAddress())
+                && totalPrice == order.getTotalPrice()
+                && itemCount == order.getOrderItems().size();
+    }
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 상품별 판매 수량 변경 이벤트 -> (상품 id, 수량, 주문 시각) 목록 (주문은 +, 취소는 -)
+ * 취소도 원래 주문 시각을 넘겨서 인기 상품 스케치가 주문 때 더한 만큼(감쇠 적용)만 뺄 수 있게 한다
+ */
+@Getter
+@AllArgsConstructor
+public class ItemSalesChangedEvent {
+    private List<ItemSale> sales;
+
+    //주문 하나(같은 주문 시각)의 상품별 수량
+    public ItemSalesChangedEvent(Map<Long, Integer> quantities, LocalDateTime orderedAt) {
+        this.sales = new ArrayList<>(quantities.size());
+        quantities.forEach((itemId, quantity) -> sales.add(new ItemSale(itemId, quantity, orderedAt)));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ItemSale {
+        private Long itemId;
+        private int quantity;
+        private LocalDateTime orderedAt;
+    }
+}
@@ -0,0 +1,14 @@
+package jpabook.jpashop.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 회원 정보(이름) 변경 이벤트
+ */
+@Getter
+@AllArgsConstructor
+public class MemberChangedEvent {
+    private Long memberId;
+    private String name;
+}
@@ -0,0 +1,17 @@
+package jpabook.jpashop.domain.event;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 주문 생성/취소 이벤트 -> 트랜잭션 커밋 후 조회용 인덱스 등을 갱신하는데 사용
+ */
+@Getter
+@AllArgsConstructor
+public class OrderChangedEvent {
+    private Long orderId;
+    private Long memberId;
+    private String memberName;
+    private OrderStatus status;
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 대량 주문 취소 이벤트 (벌크 update로 상태만 바꾼 주문 id 목록)
+ */
+@Getter
+@AllArgsConstructor
+public class OrdersCanceledEvent {
+    private List<Long> orderIds;
+}
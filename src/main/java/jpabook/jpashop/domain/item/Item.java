@@ -1,9 +1,10 @@
 package jpabook.jpashop.domain.item;
 
 import jpabook.jpashop.domain.Category;
-import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,6 +13,8 @@ import java.util.List;
 @Entity
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype") //DB에서 구분할 값
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item") //Book, Album, Movie 모두 같은 리전, 재고 변경시 soft lock으로 무효화
 @Getter @Setter
 public abstract class Item {
 
@@ -24,27 +27,15 @@ public abstract class Item {
     private int price;
     private int stockQuantity;
 
+    //낙관적 락 -> 동시에 수정하면 나중에 커밋하는 쪽이 OptimisticLockException (재고 update(JDBC)도 version을 올린다)
+    @Version
+    private Long version;
+
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
     //== 비즈니스 로직 ==//
-    /**
-     * stock 증가
-     */
-    public void addStock(int quantity) {
-        this.stockQuantity += quantity;
-    }
-
-    /**
-     * stock 감소
-     */
-    public void removeStock(int quantity) {
-        int restStock = this.stockQuantity - quantity;
-        if(restStock < 0) {
-            throw  new NotEnoughStockException("need more stock");
-        }
-        this.stockQuantity = restStock;
-    }
+    //재고 증감은 StockService (DB 조건부 update 또는 메모리 카운터) -> 엔티티 필드를 직접 고치면 동시 주문시 초과 판매
 
     //변경 감지 메서드
     public Item change(Item item, String name, int price, int stockQuantity) {
@@ -0,0 +1,53 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * 낙관적 락 재시도 지표
+ * - jpashop.retry.conflicts: 충돌 횟수 (시도가 실패할 때마다)
+ * - jpashop.retry.exhausted: 재시도를 다 쓰고도 실패한 호출 수
+ * method 태그는 @Retryable의 label
+ */
+@Slf4j
+@Component("optimisticLockRetryListener")
+@RequiredArgsConstructor
+public class OptimisticLockRetryListener extends RetryListenerSupport {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        if (!(throwable instanceof OptimisticLockingFailureException)) {
+            return; //재고 부족 같은 비즈니스 예외는 충돌이 아님
+        }
+        counter("jpashop.retry.conflicts", context).increment();
+        log.debug("optimistic lock conflict. method={}, attempt={}", name(context), context.getRetryCount());
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        if (throwable instanceof OptimisticLockingFailureException) {
+            counter("jpashop.retry.exhausted", context).increment();
+            log.warn("optimistic lock retry exhausted. method={}, attempts={}", name(context), context.getRetryCount());
+        }
+    }
+
+    private Counter counter(String name, RetryContext context) {
+        return Counter.builder(name)
+                .tag("method", name(context))
+                .register(meterRegistry);
+    }
+
+    private static String name(RetryContext context) {
+        Object name = context.getAttribute(RetryContext.NAME);
+        return name == null ? "unknown" : name.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package jpabook.jpashop.monitoring;
+
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,105 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 요청의 SQL 통계를 응답 헤더/메트릭으로 내보내고 예산 초과, N+1(같은 SQL 반복)을 검사한다
+ * - 본문을 직접 스트리밍하는 응답(v6 NDJSON, direct-json v4/v5)은 헤더를 쓸 시점이 없어서 X-Sql-* 헤더가 없다
+ *   -> 요청이 끝난 뒤 record()에서 예산만 검사 (이미 응답이 나갔으므로 fail 모드여도 로그 + 메트릭만)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SqlBudgetInspector {
+
+    public static final String HANDLER_ATTRIBUTE = SqlBudgetInspector.class.getName() + ".handler";
+    private static final String CHECKED_ATTRIBUTE = SqlBudgetInspector.class.getName() + ".checked";
+    private static final String UNKNOWN = "UNKNOWN"; //핸들러 패턴이 없는 요청 (404, 정적 리소스 등)
+
+    private final SqlBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 응답을 쓰기 전에 한번만 호출 -> 헤더 추가 + 예산 검사
+     */
+    public void inspect(HttpServletRequest request, BiConsumer<String, String> header) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics == null || request.getAttribute(CHECKED_ATTRIBUTE) != null) {
+            return;
+        }
+        request.setAttribute(CHECKED_ATTRIBUTE, Boolean.TRUE);
+
+        header.accept("X-Sql-Statements", String.valueOf(statistics.getStatements()));
+        header.accept("X-Sql-Rows", String.valueOf(statistics.getRows()));
+        header.accept("X-Sql-Time-Ms", String.valueOf(statistics.getJdbcMillis()));
+
+        String violation = findViolation(request, statistics);
+        if (violation == null) {
+            return;
+        }
+        if (properties.getMode() == SqlBudgetProperties.Mode.FAIL) {
+            throw new SqlBudgetExceededException(violation);
+        }
+        log.warn(violation);
+    }
+
+    /**
+     * 요청이 끝나면 메트릭 기록, 응답 전에 검사하지 못한 요청(스트리밍)은 여기서 예산 검사
+     */
+    public void record(HttpServletRequest request) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics == null) {
+            return;
+        }
+        if (request.getAttribute(CHECKED_ATTRIBUTE) == null) {
+            request.setAttribute(CHECKED_ATTRIBUTE, Boolean.TRUE);
+            String violation = findViolation(request, statistics);
+            if (violation != null) {
+                log.warn("{} (streamed response, already committed)", violation);
+            }
+        }
+        Object handler = request.getAttribute(HANDLER_ATTRIBUTE);
+        Tags tags = Tags.of("uri", tag(pattern(request)), "handler", handler == null ? UNKNOWN : handler.toString());
+        meterRegistry.summary("http.server.sql.statements", tags).record(statistics.getStatements());
+        meterRegistry.summary("http.server.sql.rows", tags).record(statistics.getRows());
+        meterRegistry.timer("http.server.sql.time", tags).record(statistics.getJdbcMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private String findViolation(HttpServletRequest request, SqlStatistics statistics) {
+        String pattern = pattern(request);
+        int budget = properties.budgetFor(pattern);
+        if (budget > 0 && statistics.getStatements() > budget) {
+            meterRegistry.counter("http.server.sql.budget.exceeded", "uri", tag(pattern)).increment();
+            return String.format("SQL budget exceeded: %s %s -> %d statements (budget %d)",
+                    request.getMethod(), pattern, statistics.getStatements(), budget);
+        }
+
+        Map.Entry<String, Integer> repeated = statistics.mostRepeatedShape();
+        int threshold = properties.getRepeatThreshold();
+        if (threshold > 0 && repeated != null && repeated.getValue() > threshold) {
+            meterRegistry.counter("http.server.sql.n_plus_one", "uri", tag(pattern)).increment();
+            return String.format("N+1 suspected: %s %s -> same statement executed %d times: %s",
+                    request.getMethod(), pattern, repeated.getValue(), repeated.getKey());
+        }
+        return null;
+    }
+
+    private static String tag(String pattern) {
+        return pattern == null ? UNKNOWN : pattern;
+    }
+
+    private static String pattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? null : pattern.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 요청 시작시 SQL 통계 수집 시작, 화면(View) 응답은 렌더링 전에 검사, 끝나면 메트릭 기록
+ * (@ResponseBody 응답은 본문을 쓰기 전에 SqlBudgetResponseAdvice에서 검사)
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlBudgetInterceptor implements HandlerInterceptor {
+
+    private final SqlBudgetInspector inspector;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatistics.start();
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            request.setAttribute(SqlBudgetInspector.HANDLER_ATTRIBUTE,
+                    handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        if (!response.isCommitted()) {
+            inspector.inspect(request, response::setHeader);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        try {
+            inspector.record(request);
+        } finally {
+            SqlStatistics.clear();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청당 SQL 예산 설정 (jpashop.sql-budget.*)
+ */
+@Component
+@ConfigurationProperties(prefix = "jpashop.sql-budget")
+@Getter @Setter
+public class SqlBudgetProperties {
+
+    public enum Mode {
+        LOG, //경고 로그만 남김
+        FAIL //예외 발생 (테스트용)
+    }
+
+    private boolean enabled = true;
+    private Mode mode = Mode.LOG;
+
+    //요청당 최대 statement 수, 0 이하면 제한 없음
+    private int defaultBudget = 0;
+
+    //같은 모양의 SQL이 이 횟수를 넘으면 N+1로 판단, 0 이하면 검사 안함
+    private int repeatThreshold = 10;
+
+    //URL 패턴별 예산 ex) "[/api/v2/simple-orders]": 5
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    public int budgetFor(String pattern) {
+        return pattern == null ? defaultBudget : endpoints.getOrDefault(pattern, defaultBudget);
+    }
+}
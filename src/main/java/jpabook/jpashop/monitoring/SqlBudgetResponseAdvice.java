@@ -0,0 +1,36 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * @ResponseBody 응답은 본문을 쓰면서 헤더가 확정되므로 쓰기 직전에 SQL 통계 헤더 추가 + 예산 검사
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class SqlBudgetResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SqlBudgetInspector inspector;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            inspector.inspect(((ServletServerHttpRequest) request).getServletRequest(), response.getHeaders()::set);
+        }
+        return body;
+    }
+}
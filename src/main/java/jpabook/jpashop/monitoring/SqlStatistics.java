@@ -0,0 +1,79 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청 하나 동안 실행된 SQL 통계 (statement 수, 읽은 row 수, JDBC 시간, 같은 모양의 SQL 반복 횟수)
+ * 요청 스레드의 ThreadLocal에 두고, 조회를 다른 스레드에 나눠 실행할 때는 bind로 같은 객체를 공유한다
+ */
+public class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+    private long jdbcNanos;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(SqlStatistics statistics) {
+        if (statistics == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(statistics);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    synchronized void recordStatement(String sql, long elapsedNanos) {
+        statements++;
+        jdbcNanos += elapsedNanos;
+        if (sql != null) {
+            shapes.merge(shape(sql), 1, Integer::sum);
+        }
+    }
+
+    synchronized void recordRow() {
+        rows++;
+    }
+
+    public synchronized int getStatements() {
+        return statements;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized long getJdbcMillis() {
+        return jdbcNanos / 1_000_000;
+    }
+
+    /**
+     * 가장 많이 반복된 SQL 모양과 횟수 -> N+1이면 같은 select가 N번 반복된다
+     */
+    public synchronized Map.Entry<String, Integer> mostRepeatedShape() {
+        return shapes.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(e -> Map.entry(e.getKey(), e.getValue()))
+                .orElse(null);
+    }
+
+    //바인딩 값은 이미 ?로 빠져있으므로 공백만 정리
+    private static String shape(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -2,15 +2,26 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
     private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final MultiIdLoader multiIdLoader;
 
     public void save(Item item) {
         if (item.getId() == null) {
@@ -24,9 +35,95 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    //id 순서대로 batch 단위 in 쿼리 (영속성 컨텍스트에 있는 상품은 쿼리 없이 사용)
+    public List<Item> findMultiple(List<Long> ids) {
+        return multiIdLoader.load(Item.class, ids);
+    }
+
     public List<Item> findAll() {
+        //쿼리 캐시 -> item 테이블이 바뀌기 전까지는 id 목록을 캐시에서 꺼내고 엔티티는 2차 캐시에서 조회
         return em.createQuery("select i from Item i", Item.class)
+                .setHint(QueryHints.CACHEABLE, true)
+                .setHint(QueryHints.CACHE_REGION, "query-item")
+                .getResultList();
+    }
+
+    public List<Item> findAllByIds(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
                 .getResultList();
     }
 
+    //상품 여러개를 한번에 조회하면서 row 락(select ... for update)
+    //id 순으로 정렬해서 락을 잡으므로 여러 트랜잭션이 같은 상품들을 잠가도 순서가 같아 데드락이 생기지 않는다
+    public List<Item> findAllByIdsForUpdate(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids order by i.id", Item.class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    public void refresh(Item item) {
+        em.refresh(item);
+    }
+
+    //==재고 변경==//
+    //엔티티를 읽고 고쳐서 쓰면(read-modify-write) 동시 주문시 초과 판매 -> DB에서 한번의 update로 처리
+    //JPQL 벌크 연산은 item 2차 캐시 리전 전체를 비우므로 JDBC로 실행하고 해당 상품만 캐시에서 제거
+    //version도 같이 올려서 재고를 읽고 수정 중이던 다른 트랜잭션(상품 수정)이 낙관적 락 충돌로 다시 읽게 한다
+
+    /**
+     * 재고가 quantity 이상일 때만 차감, 차감 되었으면 true
+     */
+    public boolean decreaseStock(Long itemId, int quantity) {
+        em.flush(); //아직 insert되지 않은 상품이 있을 수 있으므로 먼저 반영
+        int updated = jdbcTemplate.update(
+                "update item set stock_quantity = stock_quantity - ?, version = version + 1 where item_id = ? and stock_quantity >= ?",
+                quantity, itemId, quantity);
+        evictFromCache(itemId);
+        return updated == 1;
+    }
+
+    /**
+     * 재고 증감 (quantity가 음수면 차감)
+     */
+    public void increaseStock(Long itemId, int quantity) {
+        em.flush();
+        jdbcTemplate.update(
+                "update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?",
+                quantity, itemId);
+        evictFromCache(itemId);
+    }
+
+    /**
+     * 여러 상품의 재고를 한번에 증가 (JDBC batch) -> 상품마다 update 한번
+     */
+    public void increaseStocks(Map<Long, Integer> quantities) {
+        em.flush();
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        quantities.forEach((itemId, quantity) -> args.add(new Object[]{quantity, itemId}));
+        jdbcTemplate.batchUpdate(
+                "update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?",
+                args);
+        quantities.keySet().forEach(this::evictFromCache);
+    }
+
+    public int findStockQuantity(Long itemId) {
+        return jdbcTemplate.queryForObject(
+                "select stock_quantity from item where item_id = ?", Integer.class, itemId);
+    }
+
+    //커밋 전에 다른 트랜잭션이 이전 값을 다시 캐시에 올릴 수 있으므로 트랜잭션이 끝난 뒤에도 한번 더 제거
+    private void evictFromCache(Long itemId) {
+        Cache cache = em.getEntityManagerFactory().getCache();
+        cache.evict(Item.class, itemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Item.class, itemId);
+                }
+            });
+        }
+    }
 }
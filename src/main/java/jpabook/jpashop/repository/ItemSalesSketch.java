@@ -0,0 +1,226 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent.ItemSale;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManager;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 많이 팔린 상품 top-K용 메모리 스케치 (Space-Saving, jpashop.best-sellers.*)
+ * - 상품 capacity개의 카운터만 유지, 카운터가 가득 차면 가장 작은 카운터를 새 상품에 넘겨주고 그 값을 오차(error)로 기록
+ *   -> 실제 판매량이 전체의 1/capacity를 넘는 상품은 반드시 남아 있고, 추정치는 실제보다 최대 error만큼 크다
+ * - 주문/취소가 커밋된 뒤에 이벤트로 갱신 (취소는 카운터에 남아 있는 상품만 차감)
+ * - 시간 감쇠(forward decay): 판매량을 기준 시각(landmark) 대비 2^((주문 시각 - landmark) / halfLife) 배로 저장하고
+ *   조회할 때만 2^(-(지금 - landmark) / halfLife)를 곱한다 -> 저장된 값(TreeSet 정렬 키)은 시간이 지나도 바뀌지 않는다
+ *   취소는 원래 주문 시각으로 같은 가중치를 계산해서 주문 때 더한 만큼만 뺀다
+ * - 가중치가 너무 커지기 전에 landmark를 옮기고(rebase) 모든 값을 같은 비율로 줄인 뒤 TreeSet을 다시 만든다
+ * - 애플리케이션이 뜰 때 order_item에서 halfLife 구간별로 합계를 읽어서 감쇠를 적용한 값으로 다시 채운다
+ */
+@Slf4j
+@Component
+public class ItemSalesSketch {
+
+    //landmark에서 이만큼 halfLife가 지나면 rebase -> 가중치가 2^32 안에서 유지
+    private static final double REBASE_HALF_LIVES = 32;
+
+    private final EntityManager em;
+    private final boolean enabled;
+    private final int capacity;
+    private final Duration halfLife;
+    private final int rebuildHalfLives;
+    private final Clock clock;
+
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private NavigableSet<Counter> ordered = newOrderedSet();
+    private LocalDateTime landmark;
+
+    @Autowired
+    public ItemSalesSketch(EntityManager em,
+                           @Value("${jpashop.best-sellers.enabled:true}") boolean enabled,
+                           @Value("${jpashop.best-sellers.capacity:1000}") int capacity,
+                           @Value("${jpashop.best-sellers.half-life-hours:24}") long halfLifeHours,
+                           @Value("${jpashop.best-sellers.rebuild-half-lives:8}") int rebuildHalfLives) {
+        this(em, enabled, capacity, Duration.ofHours(halfLifeHours), rebuildHalfLives, Clock.systemDefaultZone());
+    }
+
+    ItemSalesSketch(EntityManager em, boolean enabled, int capacity, Duration halfLife, int rebuildHalfLives, Clock clock) {
+        this.em = em;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.halfLife = halfLife;
+        this.rebuildHalfLives = rebuildHalfLives;
+        this.clock = clock;
+        this.landmark = LocalDateTime.now(clock);
+    }
+
+    /**
+     * 애플리케이션이 뜬 뒤 DB의 주문상품으로 카운터를 채운다 -> halfLife 구간마다 group by 한번
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<Long, Double> counts = new HashMap<>();
+        for (int i = 0; i < rebuildHalfLives; i++) {
+            LocalDateTime to = now.minus(halfLife.multipliedBy(i));
+            LocalDateTime from = now.minus(halfLife.multipliedBy(i + 1));
+            double weight = Math.pow(0.5, i + 0.5); //구간 가운데 시점 기준 감쇠 (landmark = now)
+            List<Object[]> rows = em.createQuery(
+                            "select oi.item.id, sum(oi.count) from OrderItem oi join oi.order o" +
+                                    " where o.status = :status and o.orderDate >= :from and o.orderDate < :to" +
+                                    " group by oi.item.id", Object[].class)
+                    .setParameter("status", OrderStatus.ORDER)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList();
+            for (Object[] row : rows) {
+                counts.merge((Long) row[0], ((Number) row[1]).doubleValue() * weight, Double::sum);
+            }
+        }
+
+        synchronized (this) {
+            counters.clear();
+            ordered.clear();
+            landmark = now;
+            counts.forEach(this::offer);
+        }
+        log.info("item sales sketch built: {} items, {} counters", counts.size(), counters.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemSalesChanged(ItemSalesChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            for (ItemSale sale : event.getSales()) {
+                double weighted = Math.abs(sale.getQuantity()) * weight(sale.getOrderedAt());
+                if (sale.getQuantity() > 0) {
+                    offer(sale.getItemId(), weighted);
+                } else {
+                    retract(sale.getItemId(), weighted);
+                }
+            }
+        }
+    }
+
+    /**
+     * landmark가 오래되었으면 지금으로 옮긴다 -> 모든 값에 같은 비율을 곱하고 TreeSet은 새로 만든다
+     * (곱셈 반올림으로 서로 다른 값이 같아질 수 있으므로 기존 TreeSet 안에서 값을 바꾸지 않는다)
+     */
+    @Scheduled(fixedDelayString = "${jpashop.best-sellers.rebase-interval-ms:60000}")
+    public void rebase() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        synchronized (this) {
+            if (halfLivesSince(landmark, now) < REBASE_HALF_LIVES) {
+                return;
+            }
+            double factor = 1 / weight(now);
+            NavigableSet<Counter> rebased = newOrderedSet();
+            for (Counter counter : counters.values()) {
+                counter.count *= factor;
+                counter.error *= factor;
+                rebased.add(counter);
+            }
+            ordered = rebased;
+            landmark = now;
+        }
+    }
+
+    /**
+     * 판매량 추정치가 큰 순서로 limit개 (지금 시점으로 감쇠 적용)
+     */
+    public synchronized List<ItemSales> top(int limit) {
+        double decay = 1 / weight(LocalDateTime.now(clock));
+        List<ItemSales> result = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> it = ordered.descendingIterator();
+        while (it.hasNext() && result.size() < limit) {
+            Counter counter = it.next();
+            result.add(new ItemSales(counter.itemId, counter.count * decay, counter.error * decay));
+        }
+        return result;
+    }
+
+    //landmark 기준 가중치 2^((time - landmark) / halfLife)
+    private double weight(LocalDateTime time) {
+        return Math.pow(2, halfLivesSince(landmark, time));
+    }
+
+    private double halfLivesSince(LocalDateTime from, LocalDateTime to) {
+        return (double) Duration.between(from, to).toMillis() / halfLife.toMillis();
+    }
+
+    private void offer(Long itemId, double quantity) {
+        Counter counter = counters.get(itemId);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(itemId, 0, 0);
+            } else {
+                //가장 작은 카운터를 넘겨받는다 -> 그 값만큼 과대 추정될 수 있음
+                Counter min = ordered.pollFirst();
+                counters.remove(min.itemId);
+                counter = new Counter(itemId, min.count, min.count);
+            }
+            counters.put(itemId, counter);
+        } else {
+            ordered.remove(counter);
+        }
+        counter.count += quantity;
+        ordered.add(counter);
+    }
+
+    private void retract(Long itemId, double quantity) {
+        Counter counter = counters.get(itemId);
+        if (counter == null) {
+            return; //추적하지 않는 상품
+        }
+        ordered.remove(counter);
+        counter.count = Math.max(0, counter.count - quantity);
+        counter.error = Math.min(counter.error, counter.count);
+        ordered.add(counter);
+    }
+
+    private static NavigableSet<Counter> newOrderedSet() {
+        return new TreeSet<>(Comparator.comparingDouble((Counter c) -> c.count).thenComparing(c -> c.itemId));
+    }
+
+    private static class Counter {
+        private final Long itemId;
+        private double count;
+        private double error;
+
+        private Counter(Long itemId, double count, double error) {
+            this.itemId = itemId;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ItemSales {
+        private Long itemId;
+        private double count; //판매량 추정치 (조회 시점 기준 감쇠 적용)
+        private double error; //최대 과대 추정량
+    }
+}
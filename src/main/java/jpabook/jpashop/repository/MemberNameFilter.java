@@ -0,0 +1,146 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.event.MemberChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 회원 이름 블룸 필터 (jpashop.member-name-filter.*)
+ * - mightContain이 false면 그 이름은 확실히 없다 -> 회원가입 중복 검사에서 DB 조회를 생략
+ * - true는 오탐일 수 있으므로 DB로 다시 확인, 비트는 지울 수 없어서 이름 변경 후 옛 이름은 오탐으로 남는다
+ * - 애플리케이션이 뜬 뒤 member 테이블로 채우고, 그 전에는 항상 true (DB 조회)
+ * - 다른 서버에서 가입한 이름은 모르므로 최종 중복 방지는 member.name 유니크 제약이 맡는다
+ */
+@Slf4j
+@Component
+public class MemberNameFilter {
+
+    private static final int WARM_UP_PAGE_SIZE = 1000;
+
+    private final EntityManager em;
+    private final boolean enabled;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLongArray words;
+
+    private volatile boolean available = false;
+
+    public MemberNameFilter(EntityManager em,
+                            @Value("${jpashop.member-name-filter.enabled:true}") boolean enabled,
+                            @Value("${jpashop.member-name-filter.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${jpashop.member-name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.em = em;
+        this.enabled = enabled;
+        //m = -n ln(p) / (ln 2)^2, k = m/n ln 2
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, bits);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 애플리케이션이 뜬 뒤 회원 이름을 id 순으로 나눠 읽어서 채운다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long count = 0;
+        Long lastMemberId = 0L;
+        List<Object[]> rows = findNamesAfter(lastMemberId);
+        while (!rows.isEmpty()) {
+            for (Object[] row : rows) {
+                put((String) row[1]);
+            }
+            count += rows.size();
+            lastMemberId = (Long) rows.get(rows.size() - 1)[0];
+            rows = findNamesAfter(lastMemberId);
+        }
+        available = true;
+        log.info("member name filter built: {} names, {} bits, {} hashes", count, bitCount, hashCount);
+    }
+
+    //변경된 이름도 추가 (옛 이름 비트는 그대로 남는다)
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        put(event.getName());
+    }
+
+    /**
+     * false면 확실히 없는 이름, true면 있을 수도 있는 이름
+     */
+    public boolean mightContain(String name) {
+        if (!enabled || !available || name == null) {
+            return true;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //커밋 전에 넣어도 된다 -> 롤백되면 오탐이 하나 늘 뿐
+    public void put(String name) {
+        if (!enabled || name == null) {
+            return;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0
+                    && !words.compareAndSet(word, current, current | mask)) {
+                //다른 스레드가 같은 word를 바꿨으면 다시 시도
+            }
+        }
+    }
+
+    private List<Object[]> findNamesAfter(Long lastMemberId) {
+        return em.createQuery(
+                        "select m.id, m.name from Member m where m.id > :lastMemberId order by m.id", Object[].class)
+                .setParameter("lastMemberId", lastMemberId)
+                .setMaxResults(WARM_UP_PAGE_SIZE)
+                .getResultList();
+    }
+
+    private long index(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    //FNV-1a 64 + murmur3 fmix64 -> 상위/하위 32비트를 두 해시로 사용 (Kirsch-Mitzenmacher)
+    private static long hash(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            h ^= name.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
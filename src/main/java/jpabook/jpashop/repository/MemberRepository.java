@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 
 @Repository //컴포넌트 스캔 대상이됨 -> 스프링 빈으로 등록
@@ -12,24 +13,56 @@ import java.util.List;
 public class MemberRepository {
     //스프링 데이터 JPA 에서 생성자 주입 지원
     private final EntityManager em;
+    private final MultiIdLoader multiIdLoader;
 
     public void save(Member member) {
         em.persist(member);
     }
 
+    //insert를 바로 실행 -> 이름 유니크 제약 위반을 커밋 전에 DataIntegrityViolationException으로 받는다
+    public void saveAndFlush(Member member) {
+        em.persist(member);
+        em.flush();
+    }
+
+    //변경 감지 update를 바로 실행 (이름 변경시 유니크 제약 위반을 커밋 전에 받는다)
+    public void flush() {
+        em.flush();
+    }
+
     public Member findOne(Long id) {
         return em.find(Member.class, id);
     }
 
+    //id 순서대로 batch 단위 in 쿼리 (영속성 컨텍스트에 있는 회원은 쿼리 없이 사용)
+    public List<Member> findMultiple(List<Long> ids) {
+        return multiIdLoader.load(Member.class, ids);
+    }
+
     //JPQL from의 대상이 테이블이 아니라 엔티티가 됨
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
 
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Member> findByName(String name) {
         return em.createQuery("select m from Member m where m.name = :name", Member.class)
                 .setParameter("name", name)
                 .getResultList();
     }
+
+    //엔티티를 만들지 않고 id 한건만 확인 (이름 인덱스만 읽음)
+    public boolean existsByName(String name) {
+        return !em.createQuery("select m.id from Member m where m.name = :name", Long.class)
+                .setParameter("name", name)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
 }
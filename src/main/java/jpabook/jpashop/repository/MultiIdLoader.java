@@ -0,0 +1,47 @@
+package jpabook.jpashop.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 여러 id를 한번에 조회 (하이버네이트 byMultipleIds, jpashop.multi-get.batch-size)
+ * - id를 batchSize개씩 묶어서 where id in (...) 한번 -> em.find를 id마다 부르는 것보다 왕복 횟수가 batch 수로 줄어든다
+ * - 영속성 컨텍스트에 이미 있는 엔티티는 쿼리에서 빼고 그대로 사용
+ * - 요청한 id 순서대로 돌려주고 중복 id는 한번만, 없는 id는 뺀다
+ */
+@Component
+public class MultiIdLoader {
+
+    private final EntityManager em;
+    private final int batchSize;
+
+    public MultiIdLoader(EntityManager em,
+                         @Value("${jpashop.multi-get.batch-size:100}") int batchSize) {
+        this.em = em;
+        this.batchSize = batchSize;
+    }
+
+    public <T> List<T> load(Class<T> entityClass, List<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinctIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.unwrap(Session.class)
+                .byMultipleIds(entityClass)
+                .withBatchSize(batchSize)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(true)
+                .multiLoad(distinctIds)
+                .stream()
+                .filter(Objects::nonNull) //순서 유지 모드에서는 없는 id 자리에 null
+                .collect(Collectors.toList());
+    }
+}
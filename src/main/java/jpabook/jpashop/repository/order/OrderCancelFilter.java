@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository.order;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 대량 주문 취소 대상 조건 (조건은 모두 and)
+ */
+@Getter @Setter
+public class OrderCancelFilter {
+
+    private OrderStatus status; //ORDER 상태만 취소 가능, 비어있으면 ORDER
+    private Long memberId; //회원
+    private LocalDateTime orderDateFrom; //주문시간 >= from
+    private LocalDateTime orderDateTo; //주문시간 < to
+}
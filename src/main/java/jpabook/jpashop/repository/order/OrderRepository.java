@@ -1,6 +1,10 @@
 package jpabook.jpashop.repository.order;
 
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent.ItemSale;
+import jpabook.jpashop.repository.MultiIdLoader;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
@@ -8,7 +12,10 @@ import org.springframework.util.StringUtils;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Repository
@@ -16,6 +23,7 @@ import java.util.List;
 public class OrderRepository {
 
     private final EntityManager em;
+    private final MultiIdLoader multiIdLoader;
 
     public void save(Order order) {
         em.persist(order);
@@ -25,6 +33,11 @@ public class OrderRepository {
         return em.find(Order.class, id);
     }
 
+    //id 순서대로 batch 단위 in 쿼리 (영속성 컨텍스트에 있는 주문은 쿼리 없이 사용)
+    public List<Order> findMultiple(List<Long> ids) {
+        return multiIdLoader.load(Order.class, ids);
+    }
+
     public List<Order> findAllByString(OrderSearch orderSearch) {
         //language=JPAQL
         String jpql = "select o From Order o join o.member m";
@@ -49,13 +62,15 @@ public class OrderRepository {
             }
             jpql += " m.name like :name";
         }
+        jpql += " order by o.id";
         TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000); //최대 1000건
+                .setFirstResult(orderSearch.getOffset())
+                .setMaxResults(orderSearch.getLimit()); //최대 1000건
         if (orderSearch.getOrderStatus() != null) {
             query = query.setParameter("status", orderSearch.getOrderStatus());
         }
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
+            query = query.setParameter("name", "%" + orderSearch.getMemberName() + "%");
         }
         return query.getResultList();
     }
@@ -88,10 +103,115 @@ public class OrderRepository {
         }
 
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000); //최대1000건
+        cq.orderBy(cb.asc(o.get("id")));
+        TypedQuery<Order> query = em.createQuery(cq)
+                .setFirstResult(orderSearch.getOffset())
+                .setMaxResults(orderSearch.getLimit()); //최대1000건
         return query.getResultList();
     }
 
+    //검색 인덱스에서 찾은 주문 id로 조회 (id 순서)
+    public List<Order> findAllWithMemberByIds(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery(
+                        "select o from Order o" +
+                                " join fetch o.member m" +
+                                " where o.id in :orderIds" +
+                                " order by o.id", Order.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    //요약 테이블 갱신용 -> 컬렉션(orderItems)은 batch_fetch_size로 조회
+    public List<Order> findAllWithMemberDeliveryByIds(Collection<Long> orderIds) {
+        return em.createQuery(
+                        "select o from Order o" +
+                                " join fetch o.member m" +
+                                " join fetch o.delivery d" +
+                                " where o.id in :orderIds", Order.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    //id 순으로 lastOrderId 다음 주문 id를 limit개
+    public List<Long> findIdsAfter(Long lastOrderId, int limit) {
+        return em.createQuery("select o.id from Order o where o.id > :lastOrderId order by o.id", Long.class)
+                .setParameter("lastOrderId", lastOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //==대량 취소==//
+
+    //취소 대상 주문 id를 id 순으로 limit개 (ORDER 상태, 배송 완료 제외)
+    public List<Long> findCancelableIds(OrderCancelFilter filter, Long lastOrderId, int limit) {
+        String jpql = "select o.id from Order o" +
+                " where o.status = :status" +
+                " and o.id > :lastOrderId" +
+                " and not exists (select d.id from Delivery d where d.id = o.delivery.id and d.status = :comp)";
+        if (filter.getMemberId() != null) {
+            jpql += " and o.member.id = :memberId";
+        }
+        if (filter.getOrderDateFrom() != null) {
+            jpql += " and o.orderDate >= :from";
+        }
+        if (filter.getOrderDateTo() != null) {
+            jpql += " and o.orderDate < :to";
+        }
+        jpql += " order by o.id";
+
+        TypedQuery<Long> query = em.createQuery(jpql, Long.class)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("lastOrderId", lastOrderId)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setMaxResults(limit);
+        if (filter.getMemberId() != null) {
+            query.setParameter("memberId", filter.getMemberId());
+        }
+        if (filter.getOrderDateFrom() != null) {
+            query.setParameter("from", filter.getOrderDateFrom());
+        }
+        if (filter.getOrderDateTo() != null) {
+            query.setParameter("to", filter.getOrderDateTo());
+        }
+        return query.getResultList();
+    }
+
+    //주문 하나를 ORDER일 때만 CANCEL로 변경 (update ... where status = 'ORDER')
+    //동시에 취소한 다른 트랜잭션(단건/대량)이 먼저 커밋했으면 false -> 재고를 두번 복구하지 않는다
+    public boolean cancelIfOrdered(Long orderId) {
+        return cancelAll(Collections.singletonList(orderId)) == 1;
+    }
+
+    //벌크 update로 상태만 변경 (영속성 컨텍스트를 거치지 않음), 아직 ORDER인 주문만 바뀌므로 변경된 row 수를 돌려준다
+    public int cancelAll(List<Long> orderIds) {
+        return em.createQuery(
+                        "update Order o set o.status = :cancel" +
+                                " where o.id in :orderIds and o.status = :order")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    //주문들의 (상품, 주문 시각)별 수량 합계 (상품 id 순)
+    public List<ItemSale> sumCountByItemAndOrderDate(List<Long> orderIds) {
+        List<Object[]> rows = em.createQuery(
+                        "select oi.item.id, o.orderDate, sum(oi.count) from OrderItem oi join oi.order o" +
+                                " where o.id in :orderIds" +
+                                " group by oi.item.id, o.orderDate" +
+                                " order by oi.item.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        List<ItemSale> sales = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            sales.add(new ItemSale((Long) row[0], ((Number) row[2]).intValue(), (LocalDateTime) row[1]));
+        }
+        return sales;
+    }
+
     //장점 : Api에서 재활용성이 높음 / 엔티티를 조회한 것으로 데이터 변경이 가능
     //단점 : select 절에서 불필요한 쿼리가 나감
     public List<Order> findAllWithMemberDelivery() {
@@ -128,4 +248,23 @@ public class OrderRepository {
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    //keyset(seek) 페이징 -> offset만큼 읽고 버리지 않고 PK 인덱스로 마지막 주문 id 다음부터 바로 조회
+    //페이지 깊이와 상관없이 응답 시간이 일정, 컬렉션은 마찬가지로 batch_fetch_size로 조회
+    public List<Order> findAllWithMemberDeliveryAfter(Long lastOrderId, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (lastOrderId != null) {
+            jpql += " where o.id > :lastOrderId";
+        }
+        jpql += " order by o.id";
+
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+                .setMaxResults(limit);
+        if (lastOrderId != null) {
+            query.setParameter("lastOrderId", lastOrderId);
+        }
+        return query.getResultList();
+    }
 }
@@ -7,6 +7,20 @@ import lombok.Setter;
 @Getter @Setter
 public class OrderSearch {
 
+    public static final int MAX_SIZE = 1000; //한 페이지 최대 1000건
+
     private String memberName; //회원 이름
     private OrderStatus orderStatus; //주문 상태[ORDER, CANCEL]
+
+    private int page = 0; //페이지 번호(0부터 시작)
+    private int size = MAX_SIZE; //페이지 크기
+
+    //page * limit이 int를 넘으면 음수가 되므로 long으로 계산해서 int 최대값으로 자른다 (데이터보다 뒤 -> 빈 페이지)
+    public int getOffset() {
+        return (int) Math.min((long) Math.max(page, 0) * getLimit(), Integer.MAX_VALUE);
+    }
+
+    public int getLimit() {
+        return Math.min(Math.max(size, 1), MAX_SIZE);
+    }
 }
@@ -0,0 +1,292 @@
+package jpabook.jpashop.repository.order;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.event.MemberChangedEvent;
+import jpabook.jpashop.domain.event.OrderChangedEvent;
+import jpabook.jpashop.domain.event.OrdersCanceledEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 검색용 메모리 인덱스 (jpashop.order-search-index.*)
+ * - 회원 이름 n-gram -> 회원 id, 회원 id -> 주문 id, 주문 상태 -> 주문 id
+ * - m.name like '%이름%' 처럼 앞에 %가 붙으면 DB 인덱스를 못 타서 풀스캔 -> 주문 id 목록은 DB 없이 메모리에서 찾는다
+ * - 주문 생성/취소(대량 취소 포함), 회원 이름 변경이 커밋된 뒤에 이벤트로 갱신
+ * - 주문 수가 maxOrders를 넘으면 인덱스를 사용하지 않고 DB 검색으로 돌아간다
+ *   꺼진 뒤에는 rebuild-interval-ms마다 주문 수를 세어서 다시 maxOrders 이하가 되면 인덱스를 새로 만든다
+ * - rebuild 중에 커밋된 변경은 모아두었다가 조회한 주문을 채운 뒤 다시 적용 (같은 변경을 두번 적용해도 결과는 같다)
+ */
+@Slf4j
+@Component
+public class OrderSearchIndex {
+
+    private static final int GRAM_SIZE = 2; //이름이 짧으므로 2-gram
+
+    private final EntityManager em;
+    private final boolean enabled;
+    private final int maxOrders;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Long, Entry> orders = new TreeMap<>(); //주문 id -> (회원 id, 상태)
+    private final Map<Long, String> memberNames = new HashMap<>();
+    private final Map<Long, NavigableSet<Long>> memberOrders = new HashMap<>();
+    private final Map<String, Set<Long>> gramMembers = new HashMap<>();
+    private final Map<OrderStatus, NavigableSet<Long>> statusOrders = new EnumMap<>(OrderStatus.class);
+
+    private volatile boolean available = false;
+    private List<Runnable> pendingChanges; //rebuild 중에 온 변경 (write lock 안에서만 접근)
+
+    public OrderSearchIndex(EntityManager em,
+                            @Value("${jpashop.order-search-index.enabled:false}") boolean enabled,
+                            @Value("${jpashop.order-search-index.max-orders:100000}") int maxOrders) {
+        this.em = em;
+        this.enabled = enabled;
+        this.maxOrders = maxOrders;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 애플리케이션이 뜬 뒤 DB의 주문으로 인덱스를 채운다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Object[]> rows;
+        try {
+            rows = em.createQuery(
+                            "select o.id, m.id, m.name, o.status from Order o join o.member m", Object[].class)
+                    .setMaxResults(maxOrders + 1)
+                    .getResultList();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Runnable> changes = pendingChanges;
+            pendingChanges = null;
+            available = false;
+            clear();
+            if (rows.size() > maxOrders) {
+                log.warn("order search index disabled: more than {} orders", maxOrders);
+                return;
+            }
+            for (Object[] row : rows) {
+                put((Long) row[0], (Long) row[1], (String) row[2], (OrderStatus) row[3]);
+            }
+            available = true;
+            changes.forEach(Runnable::run);
+            log.info("order search index built: {} orders", orders.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 상한 초과로 꺼진 인덱스를 주문 수가 다시 maxOrders 이하가 되면 새로 만든다 (주문 수만 먼저 센다)
+     */
+    @Scheduled(initialDelayString = "${jpashop.order-search-index.rebuild-interval-ms:600000}",
+            fixedDelayString = "${jpashop.order-search-index.rebuild-interval-ms:600000}")
+    public void rebuildIfUnavailable() {
+        if (!enabled || available) {
+            return;
+        }
+        long count = em.createQuery("select count(o) from Order o", Long.class).getSingleResult();
+        if (count <= maxOrders) {
+            rebuild();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        apply(() -> {
+            if (!orders.containsKey(event.getOrderId()) && orders.size() >= maxOrders) {
+                //상한 초과 -> 더 이상 정확한 인덱스가 아니므로 DB 검색으로 전환
+                log.warn("order search index disabled: more than {} orders", maxOrders);
+                available = false;
+                clear();
+                return;
+            }
+            put(event.getOrderId(), event.getMemberId(), event.getMemberName(), event.getStatus());
+        });
+    }
+
+    @TransactionalEventListener
+    public void onOrdersCanceled(OrdersCanceledEvent event) {
+        apply(() -> {
+            for (Long orderId : event.getOrderIds()) {
+                Entry entry = orders.get(orderId);
+                if (entry != null) {
+                    put(orderId, entry.memberId, memberNames.get(entry.memberId), OrderStatus.CANCEL);
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        apply(() -> {
+            if (memberNames.containsKey(event.getMemberId())) {
+                putMemberName(event.getMemberId(), event.getName());
+            }
+        });
+    }
+
+    //rebuild 중이면 모아두고, 인덱스를 쓰는 중이면 바로 적용, 꺼져 있으면 버린다 (다시 만들 때 DB에서 읽음)
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(() -> {
+                    if (available) {
+                        change.run();
+                    }
+                });
+            } else if (available) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 검색 조건에 맞는 주문 id를 id 순으로 정렬해서 해당 페이지만 돌려준다.
+     */
+    public List<Long> search(OrderSearch orderSearch) {
+        lock.readLock().lock();
+        try {
+            Collection<Long> candidates;
+            if (StringUtils.hasText(orderSearch.getMemberName())) {
+                NavigableSet<Long> matched = new TreeSet<>();
+                for (Long memberId : findMembers(orderSearch.getMemberName())) {
+                    matched.addAll(memberOrders.getOrDefault(memberId, Collections.emptyNavigableSet()));
+                }
+                candidates = matched;
+            } else if (orderSearch.getOrderStatus() != null) {
+                candidates = statusOrders.getOrDefault(orderSearch.getOrderStatus(), Collections.emptyNavigableSet());
+            } else {
+                candidates = orders.keySet();
+            }
+
+            return candidates.stream()
+                    .filter(orderId -> orderSearch.getOrderStatus() == null
+                            || orders.get(orderId).status == orderSearch.getOrderStatus())
+                    .skip(orderSearch.getOffset())
+                    .limit(orderSearch.getLimit())
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //n-gram 목록이 모두 포함된 회원만 후보로 두고, 실제 이름에 검색어가 들어있는지 다시 확인
+    private Collection<Long> findMembers(String name) {
+        if (name.length() < GRAM_SIZE) {
+            return memberNames.entrySet().stream()
+                    .filter(e -> e.getValue().contains(name))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+        Set<Long> candidates = null;
+        for (String gram : grams(name)) {
+            Set<Long> members = gramMembers.getOrDefault(gram, Collections.emptySet());
+            if (candidates == null) {
+                candidates = new HashSet<>(members);
+            } else {
+                candidates.retainAll(members);
+            }
+            if (candidates.isEmpty()) {
+                return candidates;
+            }
+        }
+        candidates.removeIf(memberId -> !memberNames.get(memberId).contains(name));
+        return candidates;
+    }
+
+    private void put(Long orderId, Long memberId, String memberName, OrderStatus status) {
+        Entry old = orders.put(orderId, new Entry(memberId, status));
+        if (old != null) {
+            statusOrders.get(old.status).remove(orderId);
+        }
+        statusOrders.computeIfAbsent(status, s -> new TreeSet<>()).add(orderId);
+        memberOrders.computeIfAbsent(memberId, id -> new TreeSet<>()).add(orderId);
+        putMemberName(memberId, memberName);
+    }
+
+    private void putMemberName(Long memberId, String memberName) {
+        String name = memberName == null ? "" : memberName;
+        String old = memberNames.put(memberId, name);
+        if (Objects.equals(old, name)) {
+            return;
+        }
+        if (old != null) {
+            for (String gram : grams(old)) {
+                Set<Long> members = gramMembers.get(gram);
+                members.remove(memberId);
+                if (members.isEmpty()) {
+                    gramMembers.remove(gram);
+                }
+            }
+        }
+        for (String gram : grams(name)) {
+            gramMembers.computeIfAbsent(gram, g -> new HashSet<>()).add(memberId);
+        }
+    }
+
+    private void clear() {
+        orders.clear();
+        memberNames.clear();
+        memberOrders.clear();
+        gramMembers.clear();
+        statusOrders.clear();
+    }
+
+    private static Set<String> grams(String name) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= name.length(); i++) {
+            grams.add(name.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static class Entry {
+        private final Long memberId;
+        private final OrderStatus status;
+
+        private Entry(Long memberId, OrderStatus status) {
+            this.memberId = memberId;
+            this.status = status;
+        }
+    }
+}
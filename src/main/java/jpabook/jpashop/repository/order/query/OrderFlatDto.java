@@ -1,12 +1,17 @@
 package jpabook.jpashop.repository.order.query;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.projection.Projection;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Data
+@Projection(name = "OrderFlatProjection", root = Order.class, alias = "o",
+        joins = {"o.member m", "o.delivery d", "o.orderItems oi", "oi.item i"},
+        select = {"o.id", "m.name", "o.orderDate", "o.status", "d.address", "i.name", "oi.orderPrice", "oi.count"})
 public class OrderFlatDto {
     private Long orderId;
     private String name;
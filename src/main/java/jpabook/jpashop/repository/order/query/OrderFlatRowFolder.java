@@ -0,0 +1,76 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * order id 순으로 정렬된 flat row를 받아서 같은 주문의 연속된 row를 OrderQueryDto 하나로 접어준다.
+ * 현재 주문 하나만 들고 있으므로 전체 결과 크기와 상관없이 메모리 사용량이 일정하다.
+ */
+public class OrderFlatRowFolder {
+
+    private final Consumer<OrderQueryDto> downstream;
+    private OrderQueryDto current;
+
+    public OrderFlatRowFolder(Consumer<OrderQueryDto> downstream) {
+        this.downstream = downstream;
+    }
+
+    public void accept(OrderFlatDto row) {
+        if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+            finish();
+            current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(), row.getAddress(), new ArrayList<>());
+        }
+        current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+    }
+
+    /**
+     * 마지막으로 모으던 주문을 내보낸다.
+     */
+    public void finish() {
+        if (current != null) {
+            downstream.accept(current);
+            current = null;
+        }
+    }
+
+    /**
+     * order id 순으로 정렬된 flat row 스트림을 주문 목록으로 모으는 Collector
+     * groupingBy와 달리 row마다 key 객체를 만들거나 해싱하지 않고, 입력 순서(order id 순)를 그대로 유지한다.
+     */
+    public static Collector<OrderFlatDto, ?, List<OrderQueryDto>> toOrderQueryDtos() {
+        return Collector.of(Accumulator::new, Accumulator::accept, Accumulator::combine, Accumulator::finish);
+    }
+
+    private static class Accumulator {
+        private final List<OrderQueryDto> orders = new ArrayList<>();
+        private final OrderFlatRowFolder folder = new OrderFlatRowFolder(orders::add);
+
+        private void accept(OrderFlatDto row) {
+            folder.accept(row);
+        }
+
+        //병렬 스트림용 -> 경계에서 같은 주문이 양쪽으로 나뉘었으면 하나로 합친다
+        private Accumulator combine(Accumulator other) {
+            folder.finish();
+            other.folder.finish();
+            if (!orders.isEmpty() && !other.orders.isEmpty()) {
+                OrderQueryDto last = orders.get(orders.size() - 1);
+                OrderQueryDto first = other.orders.get(0);
+                if (last.getOrderId().equals(first.getOrderId())) {
+                    last.getOrderItems().addAll(first.getOrderItems());
+                    other.orders.remove(0);
+                }
+            }
+            orders.addAll(other.orders);
+            return this;
+        }
+
+        private List<OrderQueryDto> finish() {
+            folder.finish();
+            return orders;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package jpabook.jpashop.repository.order.query;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.projection.Projection;
 import lombok.Data;
 
 @Data
+@Projection(name = "OrderItemQueryProjection", root = OrderItem.class, alias = "oi",
+        joins = "oi.item i",
+        select = {"oi.order.id", "i.name", "oi.orderPrice", "oi.count"})
 public class OrderItemQueryDto {
     @JsonIgnore
     private Long orderId;
@@ -0,0 +1,225 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 주문 목록 JSON을 JDBC row에서 JsonGenerator로 바로 쓴다 (jpashop.direct-json.enabled)
+ * - 엔티티 -> DTO -> Jackson 리플렉션 단계 없이 컬럼 값을 그대로 출력 -> row마다 만드는 객체는 드라이버가 돌려주는 값 정도
+ * - 출력은 기존 API(v4 simple-orders, v5 orders)를 Jackson으로 직렬화한 것과 바이트 단위로 같아야 한다
+ *   필드 순서는 DTO 필드 순서, 날짜는 LocalDateTime 기본 형식(ISO_LOCAL_DATE_TIME), 주문상품이 없으면 orderItems는 null
+ * - 같은 ObjectMapper의 JsonFactory로 generator를 만들어서 문자열 이스케이프도 같다
+ */
+@Repository
+public class OrderJsonQueryRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    //OrderSimpleQueryRepository.findOrderDtos와 같은 조인, 같은 순서
+    private static final String SIMPLE_ORDERS_SQL =
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode" +
+                    " from orders o" +
+                    " join member m on m.member_id = o.member_id" +
+                    " join delivery d on d.delivery_id = o.delivery_id" +
+                    " order by o.order_id";
+
+    //OrderQueryRepository.findAllByDto_optimization과 같은 결과 -> 주문상품은 left join으로 한 번에, 주문 id + 주문상품 id 순
+    private static final String ORDERS_SQL =
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode," +
+                    " i.item_id, i.name, oi.order_price, oi.count" +
+                    " from orders o" +
+                    " join member m on m.member_id = o.member_id" +
+                    " join delivery d on d.delivery_id = o.delivery_id" +
+                    " left join order_item oi on oi.order_id = o.order_id" +
+                    " left join item i on i.item_id = oi.item_id" +
+                    " order by o.order_id, oi.order_item_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public OrderJsonQueryRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                    @Value("${jpashop.direct-json.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * GET /api/v4/simple-orders -> {"data":[{orderId, name, orderDate, orderStatus, address}, ...]}
+     */
+    @Transactional(readOnly = true)
+    public void writeSimpleOrders(OutputStream out) throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            RowWriter writer = new RowWriter(gen);
+            gen.writeStartObject();
+            gen.writeFieldName("data");
+            gen.writeStartArray();
+            query(SIMPLE_ORDERS_SQL, rs -> {
+                gen.writeStartObject();
+                writer.writeOrderFields(rs);
+                gen.writeEndObject();
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * GET /api/v5/orders -> [{orderId, name, orderDate, orderStatus, address, orderItems:[{itemName, orderPrice, count}]}, ...]
+     */
+    @Transactional(readOnly = true)
+    public void writeOrders(OutputStream out) throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            RowWriter writer = new RowWriter(gen);
+            gen.writeStartArray();
+            query(ORDERS_SQL, writer::writeOrderRow);
+            writer.finishOrder();
+            gen.writeEndArray();
+        }
+    }
+
+    private void query(String sql, RowWriterCallback callback) throws IOException {
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    callback.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriterCallback {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * 요청 하나 동안 재사용 -> 날짜는 같은 StringBuilder/char[]에 포맷, 현재 주문 id만 기억해서 주문 경계를 찾는다
+     */
+    private static class RowWriter {
+
+        private final JsonGenerator gen;
+        private final StringBuilder dateBuffer = new StringBuilder(32);
+        private char[] dateChars = new char[32];
+
+        private long currentOrderId;
+        private boolean inOrder = false;
+        private boolean hasItems = false;
+
+        private RowWriter(JsonGenerator gen) {
+            this.gen = gen;
+        }
+
+        //order by o.order_id -> 주문 id가 바뀌면 앞 주문을 닫고 새 주문을 연다
+        private void writeOrderRow(ResultSet rs) throws SQLException, IOException {
+            long orderId = rs.getLong(1);
+            if (!inOrder || orderId != currentOrderId) {
+                finishOrder();
+                gen.writeStartObject();
+                writeOrderFields(rs);
+                currentOrderId = orderId;
+                inOrder = true;
+                hasItems = false;
+            }
+            rs.getLong(8);
+            if (rs.wasNull()) {
+                return; //주문상품이 없거나 상품이 없는 주문상품 (v5의 inner join에서 빠지는 row)
+            }
+            if (!hasItems) {
+                gen.writeFieldName("orderItems");
+                gen.writeStartArray();
+                hasItems = true;
+            }
+            gen.writeStartObject();
+            gen.writeStringField("itemName", rs.getString(9));
+            gen.writeNumberField("orderPrice", rs.getInt(10));
+            gen.writeNumberField("count", rs.getInt(11));
+            gen.writeEndObject();
+        }
+
+        private void finishOrder() throws IOException {
+            if (!inOrder) {
+                return;
+            }
+            if (hasItems) {
+                gen.writeEndArray();
+            } else {
+                gen.writeNullField("orderItems"); //v5는 주문상품이 없으면 Map.get -> null
+            }
+            gen.writeEndObject();
+            inOrder = false;
+        }
+
+        //1~7번 컬럼: order_id, member.name, order_date, status, city, street, zipcode
+        private void writeOrderFields(ResultSet rs) throws SQLException, IOException {
+            gen.writeFieldName("orderId");
+            long orderId = rs.getLong(1);
+            if (rs.wasNull()) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(orderId);
+            }
+            gen.writeStringField("name", rs.getString(2));
+            gen.writeFieldName("orderDate");
+            writeDate(rs.getTimestamp(3));
+            gen.writeStringField("orderStatus", rs.getString(4)); //EnumType.STRING -> enum 이름 그대로
+
+            String city = rs.getString(5);
+            String street = rs.getString(6);
+            String zipcode = rs.getString(7);
+            gen.writeFieldName("address");
+            if (city == null && street == null && zipcode == null) {
+                gen.writeNull(); //하이버네이트는 컬럼이 모두 null인 임베디드 타입을 null로 읽는다
+            } else {
+                gen.writeStartObject();
+                gen.writeStringField("city", city);
+                gen.writeStringField("street", street);
+                gen.writeStringField("zipcode", zipcode);
+                gen.writeEndObject();
+            }
+        }
+
+        //Timestamp -> LocalDateTime은 하이버네이트와 같은 변환, 포맷은 Jackson LocalDateTimeSerializer 기본값과 같다
+        private void writeDate(Timestamp timestamp) throws IOException {
+            if (timestamp == null) {
+                gen.writeNull();
+                return;
+            }
+            dateBuffer.setLength(0);
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(timestamp.toLocalDateTime(), dateBuffer);
+            int length = dateBuffer.length();
+            if (dateChars.length < length) {
+                dateChars = new char[length];
+            }
+            dateBuffer.getChars(0, length, dateChars, 0);
+            gen.writeString(dateChars, 0, length);
+        }
+    }
+}
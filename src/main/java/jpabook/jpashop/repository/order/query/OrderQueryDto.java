@@ -1,7 +1,9 @@
 package jpabook.jpashop.repository.order.query;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.projection.Projection;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -10,6 +12,9 @@ import java.util.List;
 
 @Data
 @EqualsAndHashCode(of = "orderId")
+@Projection(name = "OrderQueryProjection", root = Order.class, alias = "o",
+        joins = {"o.member m", "o.delivery d"},
+        select = {"o.id", "m.name", "o.orderDate", "o.status", "d.address"})
 public class OrderQueryDto {
     private Long orderId;
     private String name;
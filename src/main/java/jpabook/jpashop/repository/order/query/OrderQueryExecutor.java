@@ -0,0 +1,152 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jpabook.jpashop.datasource.ReadYourWritesContext;
+import jpabook.jpashop.monitoring.SqlStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 조회 쿼리를 별도 스레드에서 읽기 전용 트랜잭션으로 실행한다.
+ * 스레드마다 트랜잭션이 새로 열리므로 각 작업은 자기 EntityManager와 커넥션을 사용한다.
+ * 스레드 수는 커넥션 풀 크기를 넘지 않도록 제한 -> 요청 스레드가 쥐고 있는 커넥션 1개는 남겨둔다
+ * 동시에 fan-out하는 요청 수도 제한 (풀 크기 - 스레드 수)
+ * -> OSIV에서 요청 스레드는 커넥션을 쥔 채 invokeAll에서 기다리므로, 이런 요청이 많으면 작업 스레드가 커넥션을 못 얻고
+ *    요청 스레드는 작업을 기다리는 교착이 풀 타임아웃까지 이어진다. 제한을 넘는 요청은 호출 스레드에서 순서대로 실행
+ */
+@Slf4j
+@Component
+public class OrderQueryExecutor implements DisposableBean {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate readOnlyTx;
+    private final int parallelism;
+    private final Semaphore fanOutPermits;
+
+    public OrderQueryExecutor(OrderQueryProperties properties, PlatformTransactionManager transactionManager,
+                              ObjectProvider<HikariDataSource> pools, DataSource dataSource) {
+        int maxPoolSize = maximumPoolSize(pools, dataSource);
+        this.parallelism = limitByPoolSize(Math.max(1, properties.getParallelism()), maxPoolSize);
+        //풀 크기를 모르면 fan-out은 한 요청씩
+        this.fanOutPermits = new Semaphore(maxPoolSize > 0 ? Math.max(1, maxPoolSize - parallelism) : 1);
+
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("order-query-");
+        executor.setTaskDecorator(OrderQueryExecutor::withRequestContext);
+        executor.initialize();
+
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+
+    /**
+     * 작업들을 동시에 실행하고 입력 순서대로 결과를 돌려준다.
+     * 이미 fan-out 중인 요청이 제한만큼 있으면 호출 스레드에서 순서대로 실행 (결과는 같다)
+     */
+    public <T> List<T> invokeAll(List<Supplier<T>> tasks) {
+        if (tasks.size() <= 1 || !fanOutPermits.tryAcquire()) {
+            return tasks.stream()
+                    .map(Supplier::get)
+                    .collect(Collectors.toList());
+        }
+        try {
+            return invokeAllParallel(tasks);
+        } finally {
+            fanOutPermits.release();
+        }
+    }
+
+    private <T> List<T> invokeAllParallel(List<Supplier<T>> tasks) {
+        List<CompletableFuture<T>> futures = tasks.stream()
+                .map(task -> CompletableFuture.supplyAsync(() -> readOnlyTx.execute(status -> task.get()), executor))
+                .collect(Collectors.toList());
+        try {
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    //풀보다 스레드가 많으면 남는 스레드는 커넥션을 기다리기만 하고, 요청 스레드까지 막혀서 풀이 고갈될 수 있다
+    private static int limitByPoolSize(int parallelism, int maxPoolSize) {
+        if (maxPoolSize <= 0) {
+            return parallelism;
+        }
+        int limit = Math.max(1, maxPoolSize - 1);
+        if (parallelism > limit) {
+            log.warn("order query parallelism {} limited to {} (connection pool size {})", parallelism, limit, maxPoolSize);
+            return limit;
+        }
+        return parallelism;
+    }
+
+    //커넥션 풀 빈(복제본 모드는 primaryPool, replicaPool) 중 가장 작은 풀 기준, 모르면 0
+    //풀이 빈으로 없으면(스프링 부트 기본 DataSource는 p6spy가 감싼 빈) DataSource에서 꺼낸다
+    private static int maximumPoolSize(ObjectProvider<HikariDataSource> pools, DataSource dataSource) {
+        OptionalInt min = pools.stream().mapToInt(HikariDataSource::getMaximumPoolSize).min();
+        if (min.isPresent()) {
+            return min.getAsInt();
+        }
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("connection pool size unknown", e);
+        }
+        log.warn("connection pool size unknown, order query fan-out limited to one request at a time");
+        return 0;
+    }
+
+    //작업 스레드에서 실행된 SQL도 요청의 SQL 통계에 포함, 요청에서 쓰기가 있었으면 작업 스레드도 primary에서 읽는다
+    private static Runnable withRequestContext(Runnable task) {
+        SqlStatistics statistics = SqlStatistics.current();
+        boolean primaryRequired = ReadYourWritesContext.isPrimaryRequired();
+        return () -> {
+            SqlStatistics.bind(statistics);
+            ReadYourWritesContext.bind(primaryRequired);
+            try {
+                task.run();
+            } finally {
+                SqlStatistics.clear();
+                ReadYourWritesContext.clear();
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
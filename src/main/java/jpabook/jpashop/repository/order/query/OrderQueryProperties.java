@@ -0,0 +1,28 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * 주문 조회 쿼리 설정 (jpashop.order-query.*)
+ */
+@Component
+@Validated //0 이하면 chunk가 끝나지 않으므로 시작할 때 실패
+@ConfigurationProperties(prefix = "jpashop.order-query")
+@Getter @Setter
+public class OrderQueryProperties {
+
+    //IN 절 하나에 넣을 최대 id 개수 -> 2의 제곱수로 두면 in_clause_parameter_padding과 함께 쿼리 플랜이 재사용된다
+    @Min(1)
+    private int inChunkSize = 512;
+
+    //청크(v4.1은 주문별 쿼리)를 동시에 조회할 스레드 수 (각자 읽기 전용 커넥션을 사용), 1이면 호출 스레드에서 순서대로 조회
+    //커넥션 풀 크기 - 1을 넘으면 그 값으로 제한된다, 동시에 fan-out하는 요청은 (풀 크기 - parallelism)개까지
+    @Min(1)
+    private int parallelism = 4;
+}
@@ -1,17 +1,29 @@
 package jpabook.jpashop.repository.order.query;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final EntityManager em;
+    private final OrderQueryProperties properties;
+    private final OrderQueryExecutor orderQueryExecutor;
 
     public List<OrderQueryDto> findOrderQueryDtos() {
         List<OrderQueryDto> result = findOrders(); //query 1번 -> N개
@@ -22,6 +34,22 @@ public class OrderQueryRepository {
         return result;
     }
 
+    //v4와 같은 모양(주문마다 orderItems 조회)이지만 주문별 쿼리를 여러 스레드에서 동시에 실행
+    //쿼리 수와 응답은 v4와 같고, 지연시간만 N x RTT -> N/P x RTT 로 줄어든다 (P = parallelism)
+    public List<OrderQueryDto> findOrderQueryDtos_parallel() {
+        if (!orderQueryExecutor.isParallel()) {
+            return findOrderQueryDtos();
+        }
+        List<OrderQueryDto> result = findOrders();
+        List<List<OrderItemQueryDto>> orderItems = orderQueryExecutor.invokeAll(result.stream()
+                .map(o -> (Supplier<List<OrderItemQueryDto>>) () -> findOrderItems(o.getOrderId()))
+                .collect(Collectors.toList()));
+        for (int i = 0; i < result.size(); i++) {
+            result.get(i).setOrderItems(orderItems.get(i));
+        }
+        return result;
+    }
+
     public List<OrderQueryDto> findAllByDto_optimization() {
         List<OrderQueryDto> result = findOrders();
 
@@ -32,20 +60,46 @@ public class OrderQueryRepository {
         return result;
     }
 
+    //id가 아무리 많아도 IN 절은 inChunkSize개씩 나눠서 조회 -> 거대한 IN 리스트로 쿼리 플랜 캐시가 가득 차지 않음
+    //청크가 여러개면 별도의 읽기 전용 커넥션에서 동시에 조회
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id,oi.item.name, oi.orderPrice, oi.count)" +
-                                " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
-                .setParameter("orderIds", orderIds)
-                .getResultList();
+        List<List<Long>> chunks = chunk(orderIds, properties.getInChunkSize());
+
+        List<List<OrderItemQueryDto>> results;
+        if (chunks.size() > 1 && orderQueryExecutor.isParallel()) {
+            results = orderQueryExecutor.invokeAll(chunks.stream()
+                    .map(ids -> (Supplier<List<OrderItemQueryDto>>) () -> findOrderItems(ids))
+                    .collect(Collectors.toList()));
+        } else {
+            results = chunks.stream()
+                    .map(ids -> findOrderItems(ids))
+                    .collect(Collectors.toList());
+        }
 
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = results.stream()
+                .flatMap(List::stream)
                 .collect(Collectors.groupingBy(orderItemQueryDto -> orderItemQueryDto.getOrderId()));
         return orderItemMap;
     }
 
+    //select 목록, 조인, 생성자 호출은 컴파일 시점에 생성된 *Projection 클래스 (DTO의 @Projection)
+    private List<OrderItemQueryDto> findOrderItems(List<Long> orderIds) {
+        return OrderItemQueryProjection.mapAll(em.createQuery(
+                        OrderItemQueryProjection.QUERY +
+                                " where oi.order.id in :orderIds" +
+                                " order by oi.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList());
+    }
+
+    private static List<List<Long>> chunk(List<Long> ids, int chunkSize) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+        return chunks;
+    }
+
     private static List<Long> toOrderIds(List<OrderQueryDto> result) {
         List<Long> orderIds = result.stream()
                 .map(o -> o.getOrderId())
@@ -54,32 +108,63 @@ public class OrderQueryRepository {
     }
 
     private List<OrderItemQueryDto> findOrderItems(Long orderId) {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id,oi.item.name, oi.orderPrice, oi.count)" +
-                                " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id = :orderId", OrderItemQueryDto.class)
+        return OrderItemQueryProjection.mapAll(em.createQuery(
+                        OrderItemQueryProjection.QUERY +
+                                " where oi.order.id = :orderId" +
+                                " order by oi.id", Object[].class)
                 .setParameter("orderId", orderId)
-                .getResultList();
+                .getResultList());
     }
 
+    //주문 id, 주문상품 id 순으로 고정 -> OrderJsonQueryRepository 직접 직렬화와 같은 순서
     private List<OrderQueryDto> findOrders() {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id,m.name,o.orderDate,o.status,d.address) " +
-                                "from Order o" +
-                                " join o.member m" +
-                                " join o.delivery d", OrderQueryDto.class)
-                .getResultList();
+        return OrderQueryProjection.mapAll(em.createQuery(
+                        OrderQueryProjection.QUERY +
+                                " order by o.id", Object[].class)
+                .getResultList());
     }
 
+    //order by o.id -> 같은 주문의 row가 연속되므로 OrderFlatRowFolder로 한 번에 훑으면서 접을 수 있다
     public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
-                                " from Order o" +
-                                " join o.member m" +
-                                " join o.delivery d" +
-                                " join o.orderItems oi" +
-                                " join oi.item i", OrderFlatDto.class)
-                .getResultList();
+        return OrderFlatProjection.mapAll(em.createQuery(
+                        OrderFlatProjection.QUERY +
+                                " order by o.id", Object[].class)
+                .getResultList());
+    }
+
+    //앞에서부터 주문 limit개 (row 개수가 아니라 주문 개수 기준)
+    //주문마다 row 수가 달라서 SQL limit을 걸 수 없으므로 커서로 읽다가 주문이 limit개 모이면 멈춘다
+    @Transactional(readOnly = true)
+    public List<OrderQueryDto> findAllByDto_flat(int limit) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        scrollAllByDto_flat(result::add, () -> result.size() >= limit);
+        return result;
+    }
+
+    //findAllByDto_flat과 같은 조인이지만 List로 모으지 않고 forward-only 커서로 한 줄씩 읽는다
+    //order by o.id로 같은 주문의 row가 연속되므로 주문 하나씩 접어서 consumer로 넘김 -> 힙 사용량 일정
+    @Transactional(readOnly = true)
+    public void streamAllByDto_flat(Consumer<OrderQueryDto> consumer) {
+        scrollAllByDto_flat(consumer, () -> false);
+    }
+
+    private void scrollAllByDto_flat(Consumer<OrderQueryDto> consumer, BooleanSupplier done) {
+        Query<Object[]> query = em.createQuery(
+                        OrderFlatProjection.QUERY +
+                                " order by o.id", Object[].class)
+                .unwrap(Query.class);
+
+        OrderFlatRowFolder folder = new OrderFlatRowFolder(consumer);
+        try (ScrollableResults rows = query
+                .setFetchSize(STREAM_FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (!done.getAsBoolean() && rows.next()) {
+                folder.accept(OrderFlatProjection.map(rows.get()));
+            }
+        }
+        if (!done.getAsBoolean()) {
+            folder.finish();
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,20 @@
 package jpabook.jpashop.repository.order.simplequery;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.projection.Projection;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Data
+@Projection(name = "OrderSimpleQueryProjection", root = Order.class, alias = "o",
+        joins = {"o.member m", "o.delivery d"},
+        select = {"o.id", "m.name", "o.orderDate", "o.status", "d.address"})
+@Projection(name = "OrderSummaryProjection", root = OrderSummary.class, alias = "s",
+        select = {"s.orderId", "s.memberName", "s.orderDate", "s.status", "s.address"})
 public class OrderSimpleQueryDto {
     private Long orderId;
     private String name;
@@ -15,12 +15,19 @@ public class OrderSimpleQueryRepository {
     //Api에 맞게 스펙을 맞추었기 때문에 논리적으로 계층이 깨지게됨 / repository 계층으로 화면을 의존
     //장점 -> 필요한
     //단점 -> 로직 재활용성이 적다 / Dto로 조회한것은 변경이 불가능
+    //select 목록, 조인, 생성자 호출은 컴파일 시점에 생성된 OrderSimpleQueryProjection (@Projection)
     public List<OrderSimpleQueryDto> findOrderDtos() {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
-                                " from Order o" +
-                                " join o.member m" +
-                                " join o.delivery d", OrderSimpleQueryDto.class)
-                .getResultList();
+        return OrderSimpleQueryProjection.mapAll(em.createQuery(
+                        OrderSimpleQueryProjection.QUERY +
+                                " order by o.id", Object[].class)
+                .getResultList());
+    }
+
+    //요약 테이블(order_summary) 한 테이블만 조회 -> 조인 없음
+    public List<OrderSimpleQueryDto> findOrderSummaryDtos() {
+        return OrderSummaryProjection.mapAll(em.createQuery(
+                        OrderSummaryProjection.QUERY +
+                                " order by s.orderId", Object[].class)
+                .getResultList());
     }
 }
@@ -0,0 +1,47 @@
+package jpabook.jpashop.repository.order.summary;
+
+import jpabook.jpashop.domain.OrderSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+
+    public void save(OrderSummary orderSummary) {
+        em.persist(orderSummary);
+    }
+
+    public List<OrderSummary> findAllByIds(Collection<Long> orderIds) {
+        return em.createQuery("select s from OrderSummary s where s.orderId in :orderIds", OrderSummary.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    public int updateMemberName(Long memberId, String memberName) {
+        return em.createQuery("update OrderSummary s set s.memberName = :memberName where s.memberId = :memberId")
+                .setParameter("memberName", memberName)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    public int deleteAll() {
+        return em.createQuery("delete from OrderSummary s").executeUpdate();
+    }
+
+    //주문 테이블에는 없는데 요약에만 남아있는 주문 id
+    public List<Long> findOrphanIds(int limit) {
+        return em.createQuery(
+                        "select s.orderId from OrderSummary s" +
+                                " where not exists (select o.id from Order o where o.id = s.orderId)" +
+                                " order by s.orderId", Long.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,112 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent.ItemSale;
+import jpabook.jpashop.domain.event.OrdersCanceledEvent;
+import jpabook.jpashop.repository.order.OrderCancelFilter;
+import jpabook.jpashop.repository.order.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 대량 주문 취소 (ex. 결제사 장애로 실패한 주문 일괄 취소)
+ * - 조건에 맞는 주문 id를 chunkSize개씩 id 순으로 읽어서 청크마다 트랜잭션 하나
+ * - 주문 상태는 JPQL 벌크 update 한번, 재고는 상품별로 합쳐서 JDBC batch update (상품마다 한번)
+ * - 주문/주문상품/상품 엔티티를 영속성 컨텍스트에 올리지 않는다
+ */
+@Slf4j
+@Service
+public class BulkCancelService {
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final OrderRepository orderRepository;
+    private final StockService stockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkCancelService(OrderRepository orderRepository,
+                             StockService stockService,
+                             ApplicationEventPublisher eventPublisher,
+                             EntityManager em,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${jpashop.bulk-cancel.chunk-size:1000}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.stockService = stockService;
+        this.eventPublisher = eventPublisher;
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 조건에 맞는 주문을 모두 취소하고 취소한 주문 수를 반환
+     */
+    public int cancel(OrderCancelFilter filter) {
+        if (filter.getStatus() != null && filter.getStatus() != OrderStatus.ORDER) {
+            throw new IllegalArgumentException("ORDER 상태의 주문만 취소할 수 있습니다. status=" + filter.getStatus());
+        }
+        int canceled = 0;
+        Long lastOrderId = 0L;
+        while (true) {
+            Long after = lastOrderId;
+            List<Long> orderIds = cancelChunk(filter, after);
+            if (orderIds.isEmpty()) {
+                break;
+            }
+            canceled += orderIds.size();
+            lastOrderId = orderIds.get(orderIds.size() - 1);
+        }
+        log.info("bulk cancel: {} orders", canceled);
+        return canceled;
+    }
+
+    //다른 트랜잭션이 그 사이에 취소한 주문이 있으면 재고가 두번 복구되지 않도록 청크를 롤백하고 다시 읽는다
+    private List<Long> cancelChunk(OrderCancelFilter filter, Long lastOrderId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    List<Long> orderIds = orderRepository.findCancelableIds(filter, lastOrderId, chunkSize);
+                    if (orderIds.isEmpty()) {
+                        return orderIds;
+                    }
+                    int updated = orderRepository.cancelAll(orderIds);
+                    if (updated != orderIds.size()) {
+                        throw new ConcurrencyFailureException("orders changed during bulk cancel");
+                    }
+                    //(상품, 주문 시각)별 수량 -> 재고는 상품별로 합쳐서 상품 id 순으로 복구 (락 순서 일정)
+                    List<ItemSale> sales = orderRepository.sumCountByItemAndOrderDate(orderIds);
+                    Map<Long, Integer> quantities = new TreeMap<>();
+                    sales.forEach(sale -> quantities.merge(sale.getItemId(), sale.getQuantity(), Integer::sum));
+                    stockService.releaseAll(quantities);
+                    em.clear(); //벌크 update는 영속성 컨텍스트를 거치지 않으므로 남아있는 엔티티는 버린다
+
+                    eventPublisher.publishEvent(new OrdersCanceledEvent(orderIds));
+                    eventPublisher.publishEvent(new ItemSalesChangedEvent(sales.stream()
+                            .map(sale -> new ItemSale(sale.getItemId(), -sale.getQuantity(), sale.getOrderedAt()))
+                            .collect(Collectors.toList())));
+                    return orderIds;
+                });
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("bulk cancel chunk conflicted, retrying. after={}, attempt={}", lastOrderId, attempt);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 대량 주문 결과 -> 청크마다 커밋하므로 실패해도 앞 청크의 주문은 남는다
+ * failedChunk가 있으면 그 청크(라인 failedFromLine부터)와 이후 라인은 주문되지 않았다
+ */
+@Getter
+public class BulkOrderResult {
+    private List<Long> orderIds; //커밋된 주문 id (입력 순서)
+    private Integer failedChunk; //실패한 청크 번호 (0부터), 모두 성공하면 null
+    private Integer failedFromLine; //실패한 청크의 첫 라인 번호 (0부터) -> 이 라인부터 다시 요청
+    private String error;
+
+    private BulkOrderResult(List<Long> orderIds, Integer failedChunk, Integer failedFromLine, String error) {
+        this.orderIds = orderIds;
+        this.failedChunk = failedChunk;
+        this.failedFromLine = failedFromLine;
+        this.error = error;
+    }
+
+    static BulkOrderResult completed(List<Long> orderIds) {
+        return new BulkOrderResult(orderIds, null, null, null);
+    }
+
+    static BulkOrderResult failed(List<Long> orderIds, int failedChunk, int failedFromLine, String error) {
+        return new BulkOrderResult(orderIds, failedChunk, failedFromLine, error);
+    }
+
+    public boolean isCompleted() {
+        return failedChunk == null;
+    }
+}
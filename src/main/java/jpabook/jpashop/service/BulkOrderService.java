@@ -0,0 +1,134 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent.ItemSale;
+import jpabook.jpashop.domain.event.OrderChangedEvent;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.order.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 대량 주문 등록
+ * - chunkSize건씩 청크마다 트랜잭션 하나 -> 재고 row 락은 청크 동안만 잡혀서 일반 주문을 오래 막지 않는다
+ * - 청크가 실패하면 그 청크만 롤백하고 멈춘다 -> 앞 청크까지 커밋된 주문 id와 실패한 청크를 돌려준다
+ * - 재고는 청크 안의 라인을 상품별로 합쳐서 id 순서대로 한번씩 차감 (락 순서 일정 -> 데드락 방지)
+ * - insert는 hibernate.jdbc.batch_size + order_inserts로 묶여서 나가고 id는 pooled 시퀀스에서 할당
+ */
+@Slf4j
+@Service
+public class BulkOrderService {
+
+    private final OrderRepository orderRepository;
+    private final MemberRepository memberRepository;
+    private final ItemRepository itemRepository;
+    private final StockService stockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkOrderService(OrderRepository orderRepository,
+                            MemberRepository memberRepository,
+                            ItemRepository itemRepository,
+                            StockService stockService,
+                            ApplicationEventPublisher eventPublisher,
+                            EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${jpashop.bulk-order.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.memberRepository = memberRepository;
+        this.itemRepository = itemRepository;
+        this.stockService = stockService;
+        this.eventPublisher = eventPublisher;
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 주문 라인마다 주문 하나를 생성, 커밋된 주문 id를 입력 순서대로 반환
+     * 청크가 실패하면(회원/상품 없음, 재고 부족) 그 청크는 롤백되고 이후 청크는 실행하지 않는다
+     */
+    public BulkOrderResult order(List<OrderLineDto> lines) {
+        List<Long> orderIds = new ArrayList<>(lines.size());
+        for (int from = 0; from < lines.size(); from += chunkSize) {
+            List<OrderLineDto> chunk = lines.subList(from, Math.min(from + chunkSize, lines.size()));
+            try {
+                orderIds.addAll(transactionTemplate.execute(status -> orderChunk(chunk)));
+            } catch (RuntimeException e) {
+                int failedChunk = from / chunkSize;
+                log.warn("bulk order chunk failed: chunk={}, fromLine={}, committed={}", failedChunk, from, orderIds.size(), e);
+                return BulkOrderResult.failed(orderIds, failedChunk, from, e.getMessage());
+            }
+        }
+        return BulkOrderResult.completed(orderIds);
+    }
+
+    private List<Long> orderChunk(List<OrderLineDto> lines) {
+        //회원, 상품은 청크마다 in 쿼리 한번씩
+        Map<Long, Member> members = toMap(memberRepository.findAllByIds(distinct(lines, OrderLineDto::getMemberId)), Member::getId);
+        Map<Long, Item> items = toMap(itemRepository.findAllByIds(distinct(lines, OrderLineDto::getItemId)), Item::getId);
+
+        //재고는 상품별로 합쳐서 id 순서대로 한번씩 -> 상품 수만큼만 update
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderLineDto line : lines) {
+            quantities.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+        quantities.forEach((itemId, quantity) -> stockService.reserve(getOrThrow(items, itemId, "상품"), quantity));
+
+        List<Long> orderIds = new ArrayList<>(lines.size());
+        List<ItemSale> sales = new ArrayList<>(lines.size());
+        for (OrderLineDto line : lines) {
+            Member member = getOrThrow(members, line.getMemberId(), "회원");
+            Item item = items.get(line.getItemId());
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), line.getCount());
+            Order order = Order.createOrder(member, delivery, orderItem);
+            orderRepository.save(order);
+
+            orderIds.add(order.getId());
+            sales.add(new ItemSale(item.getId(), line.getCount(), order.getOrderDate()));
+            eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), member.getId(), member.getName(), order.getStatus()));
+        }
+
+        eventPublisher.publishEvent(new ItemSalesChangedEvent(sales));
+
+        em.flush();
+        em.clear();
+        return orderIds;
+    }
+
+    private static Set<Long> distinct(List<OrderLineDto> lines, Function<OrderLineDto, Long> id) {
+        return lines.stream().map(id).collect(Collectors.toSet());
+    }
+
+    private static <T> Map<Long, T> toMap(List<T> entities, Function<T, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    private static <T> T getOrThrow(Map<Long, T> entities, Long id, String name) {
+        T entity = entities.get(id);
+        if (entity == null) {
+            throw new IllegalArgumentException("존재하지 않는 " + name + "입니다. id=" + id);
+        }
+        return entity;
+    }
+}
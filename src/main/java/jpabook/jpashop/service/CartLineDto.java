@@ -0,0 +1,14 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+@Getter
+public class CartLineDto {
+    private Long itemId;
+    private int count;
+
+    public CartLineDto(Long itemId, int count) {
+        this.itemId = itemId;
+        this.count = count;
+    }
+}
@@ -1,11 +1,17 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -14,6 +20,7 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final StockService stockService;
 
     @Transactional
     public void saveItem(Item item) {
@@ -22,14 +29,31 @@ public class ItemService {
 
     /**
      * 영속성 컨텍스트가 자동 변경
+     * 다른 트랜잭션(주문, 상품 수정)과 충돌하면 새 트랜잭션에서 다시 읽고 적용 (낙관적 락 + 재시도)
      */
+    @Retryable(value = OptimisticLockingFailureException.class, label = "ItemService.updateItem",
+            maxAttemptsExpression = "${jpashop.retry.max-attempts:5}",
+            backoff = @Backoff(delayExpression = "${jpashop.retry.delay-ms:20}",
+                    maxDelayExpression = "${jpashop.retry.max-delay-ms:200}", multiplier = 2, random = true),
+            listeners = "optimisticLockRetryListener")
     @Transactional
     public void updateItem(UpdateItemDto itemDto) {
+        stockService.resetCounter(itemDto.getId()); //재고를 직접 바꾸므로 메모리 재고 카운터는 정리
+
         //트랜잭션안에서 엔티티를 조회해야 영속상태가 된다.
         Item findItem = itemRepository.findOne(itemDto.getId());
 
+        //화면을 연 뒤에 주문으로 줄어든 재고를 덮어쓰지 않도록 관리자가 바꾼 만큼만 반영
+        int stockQuantity = itemDto.getStockQuantity();
+        if (itemDto.getBaseStockQuantity() != null) {
+            stockQuantity = findItem.getStockQuantity() + (itemDto.getStockQuantity() - itemDto.getBaseStockQuantity());
+            if (stockQuantity < 0) {
+                throw new NotEnoughStockException("need more stock");
+            }
+        }
+
         //(변경감지되면서 DB에 Update 쿼리) 의미있는 메서드를 통해서 역추적 -> 바뀌는 위치를 파악하기 쉽다. -> Setter를 쓰지 말자
-        findItem.change(findItem, itemDto.getName(), itemDto.getPrice(), itemDto.getStockQuantity());
+        findItem.change(findItem, itemDto.getName(), itemDto.getPrice(), stockQuantity);
 
 //        findItem.setName(name);
 //        findItem.setPrice(price);
@@ -44,4 +68,16 @@ public class ItemService {
         return itemRepository.findOne(itemId);
     }
 
+    public List<Item> findItems(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return itemRepository.findAllByIds(itemIds);
+    }
+
+    //요청한 id 순서대로 (없는 상품은 제외)
+    public List<Item> findMultiple(List<Long> itemIds) {
+        return itemRepository.findMultiple(itemIds);
+    }
+
 }
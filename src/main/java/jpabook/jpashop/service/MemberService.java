@@ -1,12 +1,18 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.event.MemberChangedEvent;
+import jpabook.jpashop.repository.MemberNameFilter;
 import jpabook.jpashop.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service //컴포넌트 스캔 대상이됨 -> 스프링 빈으로 등록
 @Transactional(readOnly = true) //읽기 전용 트랜잭션
@@ -15,6 +21,8 @@ public class MemberService {
 
     //final로 하면 컴파일 시점에 체크가 가능
     private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final ApplicationEventPublisher eventPublisher;
 
 /*
     //생성자 주입 -> 생성할 때 완성되어 중간에 set으로 값을 바꿀 수 없다.
@@ -34,14 +42,20 @@ public class MemberService {
      */
     @Transactional //쓰기 트랜잭션
     public Long join(Member member) {
-        validateDuplicateMember(member); //중복 회원 검증
-        memberRepository.save(member); //JPA에서 persist하면 영속성 컨텍스트에 Member를 올리는데 DB에 들어가기전에 Key값을 미리 생성해야하므로 id값이 있는게 보장
+        validateDuplicateName(member.getName()); //중복 회원 검증
+        //JPA에서 persist하면 영속성 컨텍스트에 Member를 올리는데 DB에 들어가기전에 Key값을 미리 생성해야하므로 id값이 있는게 보장
+        //동시에 같은 이름으로 가입하면 검증을 둘 다 통과할 수 있음 -> 바로 insert해서 유니크 제약 위반을 중복 회원 예외로 바꾼다
+        flushName(member.getName(), () -> memberRepository.saveAndFlush(member));
         return member.getId();
     }
 
-    private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if(!findMembers.isEmpty()) {
+    private void validateDuplicateName(String name) {
+        //블룸 필터에 없으면 확실히 없는 이름 -> DB 조회 생략
+        if (!memberNameFilter.mightContain(name)) {
+            return;
+        }
+        //엔티티를 만들지 않고 존재 여부만 확인
+        if (memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
 
@@ -50,6 +64,28 @@ public class MemberService {
         }*/
     }
 
+    //insert/update를 바로 실행하고 이름 유니크 제약 위반은 중복 회원 예외로 바꾼다
+    private void flushName(String name, Runnable flush) {
+        try {
+            flush.run();
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateName(e)) {
+                memberNameFilter.put(name);
+                throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+            }
+            throw e;
+        }
+        memberNameFilter.put(name);
+    }
+
+    private static boolean isDuplicateName(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException)) {
+            return false;
+        }
+        String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+        return constraintName != null && constraintName.toLowerCase().contains(Member.NAME_CONSTRAINT);
+    }
+
     /**
      * 회원 조회
      */
@@ -62,9 +98,19 @@ public class MemberService {
         return memberRepository.findOne(memberId);
     }
 
+    //요청한 id 순서대로 (없는 회원은 제외)
+    public List<Member> findMultiple(List<Long> memberIds) {
+        return memberRepository.findMultiple(memberIds);
+    }
+
     @Transactional
     public void update(Long id, String name) {
         Member member = memberRepository.findOne(id);
+        if (!Objects.equals(name, member.getName())) {
+            validateDuplicateName(name); //가입과 같은 중복 검증
+        }
         member.setName(name);
+        flushName(name, memberRepository::flush);
+        eventPublisher.publishEvent(new MemberChangedEvent(id, name));
     }
 }
@@ -0,0 +1,16 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+@Getter
+public class OrderLineDto {
+    private Long memberId;
+    private Long itemId;
+    private int count;
+
+    public OrderLineDto(Long memberId, Long itemId, int count) {
+        this.memberId = memberId;
+        this.itemId = itemId;
+        this.count = count;
+    }
+}
@@ -1,16 +1,26 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent;
+import jpabook.jpashop.domain.event.OrderChangedEvent;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.order.OrderRepository;
 import jpabook.jpashop.repository.order.OrderSearch;
+import jpabook.jpashop.repository.order.OrderSearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -20,9 +30,13 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final StockService stockService;
+    private final OrderSearchIndex orderSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 주문
+     * 재고는 조건부 update(StockService)로 차감하고 상품 엔티티는 수정하지 않으므로 상품 수정과 낙관적 락 충돌이 없다
      */
     @Transactional
     public Long order(Long memberId, Long itemId, int count) {
@@ -35,6 +49,9 @@ public class OrderService {
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
 
+        //재고 차감 (재고 부족시 예외)
+        stockService.reserve(item, count);
+
         //주문상품 생성
         OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
 
@@ -44,9 +61,57 @@ public class OrderService {
         //주문 저장
         orderRepository.save(order); //cascade때문에 orderItem, delivery가 자동으로 persist되므로 order만 save하면 모두 저장됨
 
+        //커밋 후 검색 인덱스 갱신
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), member.getId(), member.getName(), order.getStatus()));
+        eventPublisher.publishEvent(new ItemSalesChangedEvent(Collections.singletonMap(item.getId(), count), order.getOrderDate()));
+
         return order.getId();
     }
 
+    /**
+     * 장바구니 주문 -> 상품 여러개를 주문 하나로
+     * - 상품은 in 쿼리 한번으로 조회하면서 id 순서대로 row 락
+     * - 재고 차감도 상품별로 합쳐서 id 순서대로, 주문/주문상품은 커밋 시점에 한번에 flush
+     */
+    @Transactional
+    public Long orderCart(Long memberId, List<CartLineDto> lines) {
+        Member member = memberRepository.findOne(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("존재하지 않는 회원입니다. id=" + memberId);
+        }
+
+        Map<Long, Integer> quantities = new TreeMap<>(); //상품 id 순
+        for (CartLineDto line : lines) {
+            quantities.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+        Map<Long, Item> items = itemRepository.findAllByIdsForUpdate(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        for (Long itemId : quantities.keySet()) {
+            if (!items.containsKey(itemId)) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. id=" + itemId);
+            }
+        }
+
+        //재고 차감 (재고 부족시 예외 -> 전체 롤백)
+        quantities.forEach((itemId, quantity) -> stockService.reserve(items.get(itemId), quantity));
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        OrderItem[] orderItems = lines.stream()
+                .map(line -> {
+                    Item item = items.get(line.getItemId());
+                    return OrderItem.createOrderItem(item, item.getPrice(), line.getCount());
+                })
+                .toArray(OrderItem[]::new);
+        Order order = Order.createOrder(member, delivery, orderItems);
+        orderRepository.save(order);
+
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), member.getId(), member.getName(), order.getStatus()));
+        eventPublisher.publishEvent(new ItemSalesChangedEvent(quantities, order.getOrderDate()));
+
+        return order.getId();
+    }
 
     /**
      * 주문 취소
@@ -55,12 +120,30 @@ public class OrderService {
     public void cancelOrder(Long orderId) {
         //주문 조회
         Order order = orderRepository.findOne(orderId);
-        //주문 취소
-        order.cancel();
+        //주문 취소 -> 상태는 ORDER일 때만 조건부 update (동시에 다른 요청이나 대량 취소가 먼저 취소했으면 재고를 다시 복구하지 않는다)
+        //엔티티를 먼저 바꾸면 update 전에 flush되어 조건이 항상 실패하므로 update 후에 엔티티 상태를 맞춘다
+        if (!orderRepository.cancelIfOrdered(orderId)) {
+            throw new IllegalStateException("이미 취소된 주문입니다. orderId=" + orderId);
+        }
+        order.markCanceled();
+        //재고 복구
+        Map<Long, Integer> canceled = new HashMap<>();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            stockService.release(orderItem.getItem(), orderItem.getCount());
+            canceled.merge(orderItem.getItem().getId(), -orderItem.getCount(), Integer::sum);
+        }
+
+        Member member = order.getMember();
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), member.getId(), member.getName(), order.getStatus()));
+        eventPublisher.publishEvent(new ItemSalesChangedEvent(canceled, order.getOrderDate())); //주문 때 더한 만큼 차감
     }
 
     //검색 단순 조회(위임)시에는 Controller에서 바로 레퍼지토리로 위임해도 됨
+    //검색 인덱스를 사용할 수 있으면 주문 id는 메모리에서 찾고 해당 주문만 DB에서 조회
     public List<Order> findOrders(OrderSearch orderSearch) {
+        if (orderSearchIndex.isAvailable()) {
+            return orderRepository.findAllWithMemberByIds(orderSearchIndex.search(orderSearch));
+        }
         return orderRepository.findAllByString(orderSearch);
     }
 }
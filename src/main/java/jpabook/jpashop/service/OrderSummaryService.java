@@ -0,0 +1,196 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.domain.event.MemberChangedEvent;
+import jpabook.jpashop.domain.event.OrderChangedEvent;
+import jpabook.jpashop.domain.event.OrdersCanceledEvent;
+import jpabook.jpashop.repository.order.OrderRepository;
+import jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 요약 테이블(order_summary) 관리
+ * - 주문 생성/취소 이벤트가 오면 주문 id를 모아두었다가 커밋 직전에 한번에 갱신 (같은 트랜잭션이므로 항상 일치)
+ *   모인 id는 pageSize개씩 갱신하고 페이지 사이마다 flush/clear (대량 주문/취소도 커밋 시점 메모리가 페이지 크기로 제한)
+ * - 이벤트는 쓰기 트랜잭션 안에서만 처리 (트랜잭션 밖이면 새로 열고, 읽기 전용 트랜잭션이면 예외)
+ * - rebuild: 요약 테이블을 지우고 전체 주문으로 다시 생성
+ * - check: 요약 테이블과 원본 주문 비교
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class OrderSummaryService {
+
+    private static final int MAX_REPORTED_IDS = 100;
+
+    private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final EntityManager em;
+    private final int pageSize;
+
+    private final Object pendingKey = new Object(); //트랜잭션 리소스 키
+
+    public OrderSummaryService(OrderRepository orderRepository,
+                               OrderSummaryRepository orderSummaryRepository,
+                               EntityManager em,
+                               @Value("${jpashop.order-summary.page-size:500}") int pageSize) {
+        this.orderRepository = orderRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.em = em;
+        this.pageSize = pageSize;
+    }
+
+    //이벤트를 보낸 쪽의 쓰기 트랜잭션에 참여, 트랜잭션 밖에서 오면 리스너가 쓰기 트랜잭션을 새로 연다
+    //(클래스의 readOnly 트랜잭션으로 열면 FlushMode.MANUAL이라 요약 갱신이 버려진다)
+    @EventListener
+    @Transactional
+    public void onOrderChanged(OrderChangedEvent event) {
+        pendingOrderIds().add(event.getOrderId());
+    }
+
+    @EventListener
+    @Transactional
+    public void onOrdersCanceled(OrdersCanceledEvent event) {
+        pendingOrderIds().addAll(event.getOrderIds());
+    }
+
+    @EventListener
+    @Transactional
+    public void onMemberChanged(MemberChangedEvent event) {
+        requireWritableTransaction();
+        orderSummaryRepository.updateMemberName(event.getMemberId(), event.getName());
+    }
+
+    /**
+     * 요약 테이블 전체 재생성
+     */
+    @Transactional
+    public int rebuild() {
+        orderSummaryRepository.deleteAll();
+        int count = 0;
+        List<Long> orderIds = orderRepository.findIdsAfter(0L, pageSize);
+        while (!orderIds.isEmpty()) {
+            refresh(orderIds);
+            count += orderIds.size();
+            Long lastOrderId = orderIds.get(orderIds.size() - 1);
+            em.flush();
+            em.clear();
+            orderIds = orderRepository.findIdsAfter(lastOrderId, pageSize);
+        }
+        log.info("order summary rebuilt: {} orders", count);
+        return count;
+    }
+
+    /**
+     * 요약 테이블 정합성 검사 (누락, 값 불일치, 원본 없는 요약)
+     */
+    public CheckResult check() {
+        CheckResult result = new CheckResult();
+        List<Long> orderIds = orderRepository.findIdsAfter(0L, pageSize);
+        while (!orderIds.isEmpty()) {
+            Map<Long, OrderSummary> summaries = toSummaryMap(orderSummaryRepository.findAllByIds(orderIds));
+            for (Order order : orderRepository.findAllWithMemberDeliveryByIds(orderIds)) {
+                result.checked++;
+                OrderSummary summary = summaries.get(order.getId());
+                if (summary == null) {
+                    result.report(result.missing, order.getId());
+                } else if (!summary.matches(order)) {
+                    result.report(result.stale, order.getId());
+                }
+            }
+            Long lastOrderId = orderIds.get(orderIds.size() - 1);
+            em.clear();
+            orderIds = orderRepository.findIdsAfter(lastOrderId, pageSize);
+        }
+        result.orphaned.addAll(orderSummaryRepository.findOrphanIds(MAX_REPORTED_IDS));
+        return result;
+    }
+
+    //주문들을 pageSize개씩 읽어서 요약 생성/갱신
+    //페이지가 여러개면 다음 페이지 전에 flush/clear -> 주문 그래프와 새 요약이 페이지 크기만큼만 쌓인다
+    //(한 페이지면 비우지 않는다: OSIV면 커밋 뒤에도 호출한 쪽이 영속성 컨텍스트의 엔티티를 쓸 수 있다)
+    private void refresh(Collection<Long> orderIds) {
+        List<Long> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += pageSize) {
+            if (from > 0) {
+                em.flush();
+                em.clear();
+            }
+            List<Long> chunk = ids.subList(from, Math.min(from + pageSize, ids.size()));
+            Map<Long, OrderSummary> summaries = toSummaryMap(orderSummaryRepository.findAllByIds(chunk));
+            for (Order order : orderRepository.findAllWithMemberDeliveryByIds(chunk)) {
+                OrderSummary summary = summaries.get(order.getId());
+                if (summary == null) {
+                    orderSummaryRepository.save(OrderSummary.createOrderSummary(order));
+                } else {
+                    summary.update(order);
+                }
+            }
+        }
+    }
+
+    //readOnly 트랜잭션에 참여하면 요약 갱신이 flush되지 않으므로 조용히 버리지 않고 실패
+    private static void requireWritableTransaction() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("주문 요약은 읽기 전용 트랜잭션에서 갱신할 수 없습니다.");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> pendingOrderIds() {
+        requireWritableTransaction();
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending != null) {
+            return pending;
+        }
+        Set<Long> orderIds = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(pendingKey, orderIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                refresh(orderIds);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+            }
+        });
+        return orderIds;
+    }
+
+    private static Map<Long, OrderSummary> toSummaryMap(List<OrderSummary> summaries) {
+        return summaries.stream().collect(Collectors.toMap(OrderSummary::getOrderId, Function.identity()));
+    }
+
+    @Getter
+    public static class CheckResult {
+        private int checked;
+        private final List<Long> missing = new ArrayList<>(); //요약이 없는 주문
+        private final List<Long> stale = new ArrayList<>(); //값이 다른 주문
+        private final List<Long> orphaned = new ArrayList<>(); //원본 주문이 없는 요약
+
+        public boolean isConsistent() {
+            return missing.isEmpty() && stale.isEmpty() && orphaned.isEmpty();
+        }
+
+        private void report(List<Long> ids, Long orderId) {
+            if (ids.size() < MAX_REPORTED_IDS) {
+                ids.add(orderId);
+            }
+        }
+    }
+}
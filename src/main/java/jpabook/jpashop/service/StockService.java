@@ -0,0 +1,68 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * 재고 차감/복구
+ * - 기본: DB 조건부 update (update ... set stock = stock - ? where stock >= ?)
+ * - jpashop.stock.striped-counter.enabled=true: 메모리 카운터에서 차감하고 주기적으로 DB에 반영
+ */
+@Service
+@RequiredArgsConstructor
+public class StockService {
+
+    private final ItemRepository itemRepository;
+    private final StripedStockCounter stripedStockCounter;
+
+    /**
+     * 재고 차감, 재고가 부족하면 NotEnoughStockException
+     */
+    public void reserve(Item item, int quantity) {
+        if (stripedStockCounter.isEnabled()) {
+            stripedStockCounter.reserve(item.getId(), quantity);
+            return;
+        }
+        if (!itemRepository.decreaseStock(item.getId(), quantity)) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        itemRepository.refresh(item); //영속성 컨텍스트의 재고 수량도 DB 값으로 맞춘다
+    }
+
+    /**
+     * 재고 복구 (주문 취소)
+     */
+    public void release(Item item, int quantity) {
+        if (stripedStockCounter.isEnabled()) {
+            stripedStockCounter.release(item.getId(), quantity);
+            return;
+        }
+        itemRepository.increaseStock(item.getId(), quantity);
+        itemRepository.refresh(item);
+    }
+
+    /**
+     * 여러 상품 재고 복구 (대량 주문 취소), quantities: 상품 id -> 수량
+     */
+    public void releaseAll(Map<Long, Integer> quantities) {
+        if (stripedStockCounter.isEnabled()) {
+            quantities.forEach(stripedStockCounter::release);
+            return;
+        }
+        itemRepository.increaseStocks(quantities);
+    }
+
+    /**
+     * 관리자가 재고를 직접 바꾸기 전에 메모리 카운터를 정리
+     */
+    public void resetCounter(Long itemId) {
+        if (stripedStockCounter.isEnabled()) {
+            stripedStockCounter.evict(itemId);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 메모리 재고 카운터 (jpashop.stock.striped-counter.*)
+ * - 상품별 카운터를 CAS로 차감하므로 인기 상품에 주문이 몰려도 DB row 락을 기다리지 않는다
+ * - 차감/복구한 양은 pending에 모아두고 주기적으로 DB에 반영(reconcile)
+ * - 서버 한대에서만 재고를 관리할 때 사용, 서버가 비정상 종료되면 반영되지 않은 pending은 유실된다
+ */
+@Slf4j
+@Component
+public class StripedStockCounter {
+
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    private final ConcurrentMap<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    public StripedStockCounter(ItemRepository itemRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${jpashop.stock.striped-counter.enabled:false}") boolean enabled) {
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void reserve(Long itemId, int quantity) {
+        Slot slot = slot(itemId);
+        int current;
+        do {
+            current = slot.available.get();
+            if (current < quantity) {
+                throw new NotEnoughStockException("need more stock");
+            }
+        } while (!slot.available.compareAndSet(current, current - quantity));
+        slot.pending.addAndGet(-quantity);
+        undoOnRollback(slot, -quantity);
+    }
+
+    public void release(Long itemId, int quantity) {
+        Slot slot = slot(itemId);
+        slot.available.addAndGet(quantity);
+        slot.pending.addAndGet(quantity);
+        undoOnRollback(slot, quantity);
+    }
+
+    /**
+     * 카운터를 버리고 남은 pending을 DB에 반영 -> 다음 주문때 DB 재고로 다시 읽는다 (관리자가 재고를 직접 수정할 때)
+     */
+    public void evict(Long itemId) {
+        Slot slot = slots.remove(itemId);
+        if (slot != null) {
+            flush(itemId, slot);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.stock.striped-counter.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        slots.forEach(this::flush);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcile();
+    }
+
+    private void flush(Long itemId, Slot slot) {
+        int delta = slot.pending.getAndSet(0);
+        if (delta == 0) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> itemRepository.increaseStock(itemId, delta));
+        } catch (RuntimeException e) {
+            slot.pending.addAndGet(delta); //다음 주기에 다시 반영
+            log.warn("stock reconcile failed. itemId={}, delta={}", itemId, delta, e);
+        }
+    }
+
+    private Slot slot(Long itemId) {
+        return slots.computeIfAbsent(itemId, id -> new Slot(itemRepository.findStockQuantity(id)));
+    }
+
+    //주문 트랜잭션이 롤백되면 카운터도 되돌린다
+    private void undoOnRollback(Slot slot, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    slot.available.addAndGet(-delta);
+                    slot.pending.addAndGet(-delta);
+                }
+            }
+        });
+    }
+
+    private static class Slot {
+        private final AtomicInteger available;
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private Slot(int stockQuantity) {
+            this.available = new AtomicInteger(stockQuantity);
+        }
+    }
+}
@@ -8,11 +8,17 @@ public class UpdateItemDto {
     private String name;
     private int price;
     private int stockQuantity;
+    private Integer baseStockQuantity; //수정 화면을 열었을 때의 재고, 있으면 재고는 차이만큼만 반영
 
     public UpdateItemDto(Long id, String name, int price, int stockQuantity) {
+        this(id, name, price, stockQuantity, null);
+    }
+
+    public UpdateItemDto(Long id, String name, int price, int stockQuantity, Integer baseStockQuantity) {
         this.id = id;
         this.name = name;
         this.price = price;
         this.stockQuantity = stockQuantity;
+        this.baseStockQuantity = baseStockQuantity;
     }
 }
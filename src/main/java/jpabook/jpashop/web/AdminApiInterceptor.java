@@ -0,0 +1,42 @@
+package jpabook.jpashop.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 관리자 API(/api/admin/**)는 X-Admin-Token 헤더가 jpashop.admin.token과 같을 때만 허용
+ * - 토큰을 설정하지 않으면 관리자 API는 모두 403 (기본값은 닫힘)
+ */
+@Component
+public class AdminApiInterceptor implements HandlerInterceptor {
+
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+    public static final String PATH_PATTERN = "/api/admin/**";
+
+    private final byte[] token;
+
+    public AdminApiInterceptor(@Value("${jpashop.admin.token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        String given = request.getHeader(TOKEN_HEADER);
+        //길이가 다른 값도 비교 시간으로 토큰을 추측하지 못하도록 MessageDigest.isEqual
+        if (token.length == 0 || !StringUtils.hasText(given)
+                || !MessageDigest.isEqual(token, given.getBytes(StandardCharsets.UTF_8))) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "관리자 토큰이 필요합니다.");
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class AdminApiWebConfig implements WebMvcConfigurer {
+
+    private final AdminApiInterceptor adminApiInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        //다른 인터셉터(SQL 통계, 읽기 전용 세션)보다 먼저 막는다
+        registry.addInterceptor(adminApiInterceptor)
+                .addPathPatterns(AdminApiInterceptor.PATH_PATTERN)
+                .order(Ordered.HIGHEST_PRECEDENCE);
+    }
+}
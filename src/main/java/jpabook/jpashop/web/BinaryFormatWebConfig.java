@@ -0,0 +1,40 @@
+package jpabook.jpashop.web;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Accept 헤더에 따라 Smile(application/x-jackson-smile), CBOR(application/cbor)로 응답 (jpashop.binary-formats.*)
+ * - 스프링 부트의 Jackson2ObjectMapperBuilder로 만들어서 JSON과 같은 모듈(Hibernate5Module, JavaTimeModule)과 설정을 사용
+ * - HttpMessageConverters가 기본 Smile/CBOR 컨버터 자리에 넣으므로 JSON 컨버터가 앞 -> Accept가 없거나 모든 타입이면 JSON
+ * - Smile은 필드 이름과 짧은 문자열 값을 앞에 나온 값의 참조로 인코딩 (orderItems, orderPrice, 반복되는 주소/상태 등)
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.binary-formats", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BinaryFormatWebConfig {
+
+    //Jackson2ObjectMapperBuilder는 prototype 빈 -> 메서드마다 새 빌더
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            Jackson2ObjectMapperBuilder builder,
+            @Value("${jpashop.binary-formats.smile-shared-strings:true}") boolean sharedStrings) {
+        SmileFactory factory = new SmileFactory();
+        factory.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, true);
+        factory.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, sharedStrings); //기본값은 꺼져있음
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(factory).build());
+    }
+
+    //jackson 2.11 CBOR는 stringref(문자열 참조)를 지원하지 않음 -> 이름/값이 매번 그대로 들어간다
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
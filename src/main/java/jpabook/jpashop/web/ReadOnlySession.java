@@ -0,0 +1,13 @@
+package jpabook.jpashop.web;
+
+import java.lang.annotation.*;
+
+/**
+ * 요청 단위(OSIV) 영속성 컨텍스트를 읽기 전용으로 바꿀 핸들러 (ReadOnlySessionInterceptor)
+ * 데이터를 변경하지 않는 조회 핸들러에만 붙인다 -> 이 요청 안에서 읽은 엔티티는 수정해도 DB에 반영되지 않는다
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadOnlySession {
+}
@@ -0,0 +1,82 @@
+package jpabook.jpashop.web;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * {@link ReadOnlySession}이 붙은 핸들러의 GET 요청은 OSIV 영속성 컨텍스트를 읽기 전용(default read-only) + FlushMode.MANUAL로 바꾼다
+ * - readOnly 트랜잭션 안에서는 스프링이 이미 읽기 전용으로 조회하지만, 트랜잭션이 끝난 뒤 컨트롤러/뷰(Thymeleaf)의 지연 로딩과
+ *   트랜잭션 없이 레퍼지토리를 부르는 API(v1 ~ v3.1)는 엔티티마다 변경 감지용 스냅샷을 요청이 끝날 때까지 들고 있다
+ * - 읽기 전용으로 읽은 엔티티는 스냅샷을 만들지 않고 flush 대상도 아니다
+ * - 쓰기 트랜잭션이 같은 세션에 참여하면 flush는 AUTO로 돌아오지만 default read-only는 그대로라서 그 트랜잭션에서 읽은 엔티티의
+ *   변경도 버려진다 -> 모든 GET이 아니라 데이터를 변경하지 않는다고 표시한 핸들러에만 적용
+ * - 요청이 끝나면(afterCompletion) 원래 값으로 되돌린다
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadOnlySessionInterceptor implements HandlerInterceptor {
+
+    private static final String PREVIOUS_STATE_ATTRIBUTE = ReadOnlySessionInterceptor.class.getName() + ".PREVIOUS_STATE";
+
+    private final EntityManagerFactory emf;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) || !isReadOnly(handler)) {
+            return true;
+        }
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder != null) { //OSIV가 꺼져 있으면 요청 단위 영속성 컨텍스트가 없음
+            Session session = holder.getEntityManager().unwrap(Session.class);
+            request.setAttribute(PREVIOUS_STATE_ATTRIBUTE, new SessionState(session.isDefaultReadOnly(), session.getHibernateFlushMode()));
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SessionState previous = (SessionState) request.getAttribute(PREVIOUS_STATE_ATTRIBUTE);
+        if (previous == null) {
+            return;
+        }
+        request.removeAttribute(PREVIOUS_STATE_ATTRIBUTE);
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder != null && holder.getEntityManager().isOpen()) {
+            Session session = holder.getEntityManager().unwrap(Session.class);
+            session.setDefaultReadOnly(previous.defaultReadOnly);
+            session.setHibernateFlushMode(previous.flushMode);
+        }
+    }
+
+    private static boolean isReadOnly(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return false;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        return handlerMethod.hasMethodAnnotation(ReadOnlySession.class)
+                || AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), ReadOnlySession.class);
+    }
+
+    private static class SessionState {
+        private final boolean defaultReadOnly;
+        private final FlushMode flushMode;
+
+        private SessionState(boolean defaultReadOnly, FlushMode flushMode) {
+            this.defaultReadOnly = defaultReadOnly;
+            this.flushMode = flushMode;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.read-only-session", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ReadOnlySessionWebConfig implements WebMvcConfigurer {
+
+    private final ReadOnlySessionInterceptor readOnlySessionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        //OSIV 인터셉터가 영속성 컨텍스트를 연 다음에 실행되도록 가장 마지막 순서
+        registry.addInterceptor(readOnlySessionInterceptor)
+                .excludePathPatterns("/css/**", "/js/**", "/actuator/**")
+                .order(Ordered.LOWEST_PRECEDENCE);
+    }
+}
@@ -0,0 +1,104 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 두개를 primary/복제본으로 두고, 각 DB에 어느 쪽인지 적어둔 뒤 어디서 읽었는지 확인
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private ReplicaProperties properties;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource primary = createDatabase("primary");
+        DriverManagerDataSource replica = createDatabase("replica");
+
+        properties = new ReplicaProperties();
+        routingDataSource = new ReplicaRoutingDataSource(primary, replica, properties);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        ReadYourWritesContext.clear();
+    }
+
+    @After
+    public void tearDown() {
+        ReadYourWritesContext.clear();
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_복제본() throws Exception {
+        assertEquals("replica", readOnlyTx.execute(status -> whereAmI()));
+    }
+
+    @Test
+    public void 쓰기_트랜잭션은_primary() throws Exception {
+        assertEquals("primary", tx.execute(status -> whereAmI()));
+    }
+
+    @Test
+    public void 쓰기_이후_같은_요청의_읽기는_primary() throws Exception {
+        //given
+        tx.execute(status -> jdbcTemplate.update("update whereami set name = 'primary-written'"));
+
+        //when
+        String readAfterWrite = readOnlyTx.execute(status -> whereAmI());
+        ReadYourWritesContext.clear(); //다음 요청
+        String nextRequest = readOnlyTx.execute(status -> whereAmI());
+
+        //then
+        assertEquals("쓰기 이후에는 primary에서 읽어야 한다.", "primary-written", readAfterWrite);
+        assertEquals("다음 요청은 다시 복제본에서 읽는다.", "replica", nextRequest);
+    }
+
+    @Test
+    public void 복제_지연이_크면_primary() throws Exception {
+        //given
+        properties.setMaxLagMs(1000);
+        properties.setLagQuery("select 5000");
+
+        //when
+        routingDataSource.checkReplica();
+
+        //then
+        assertFalse(routingDataSource.isReplicaAvailable());
+        assertEquals("primary", readOnlyTx.execute(status -> whereAmI()));
+
+        //지연이 줄면 다시 복제본
+        properties.setLagQuery("select 10");
+        routingDataSource.checkReplica();
+        assertEquals("replica", readOnlyTx.execute(status -> whereAmI()));
+    }
+
+    private String whereAmI() {
+        return jdbcTemplate.queryForObject("select name from whereami", String.class);
+    }
+
+    private static DriverManagerDataSource createDatabase(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists whereami");
+        jdbcTemplate.execute("create table whereami (name varchar(50))");
+        jdbcTemplate.update("insert into whereami (name) values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,60 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SqlBudgetInspectorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SqlBudgetInspector inspector;
+    private SqlStatistics statistics;
+
+    @Before
+    public void setUp() {
+        SqlBudgetProperties properties = new SqlBudgetProperties();
+        properties.setEndpoints(Collections.singletonMap("/api/v6/orders", 1));
+        inspector = new SqlBudgetInspector(properties, meterRegistry);
+        statistics = SqlStatistics.start();
+    }
+
+    @After
+    public void tearDown() {
+        SqlStatistics.clear();
+    }
+
+    @Test
+    public void 핸들러_패턴이_없으면_UNKNOWN_태그() throws Exception {
+        //given
+        statistics.recordStatement("select 1", 0);
+
+        //when
+        inspector.record(new MockHttpServletRequest("GET", "/no-handler"));
+
+        //then
+        assertNotNull(meterRegistry.find("http.server.sql.statements").tags("uri", "UNKNOWN", "handler", "UNKNOWN").summary());
+        assertNull(meterRegistry.find("http.server.sql.statements").tag("uri", "null").summary());
+    }
+
+    @Test
+    public void 스트리밍_응답은_끝난_뒤_예산_검사() throws Exception {
+        //given: 응답 전에 inspect()가 불리지 않은 요청 (본문을 직접 쓴 v6 NDJSON)
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v6/orders");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v6/orders");
+        statistics.recordStatement("select 1", 0);
+        statistics.recordStatement("select 2", 0);
+
+        //when
+        inspector.record(request);
+
+        //then
+        assertEquals(1.0, meterRegistry.counter("http.server.sql.budget.exceeded", "uri", "/api/v6/orders").count(), 0.0);
+    }
+}
@@ -0,0 +1,188 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.event.ItemSalesChangedEvent;
+import jpabook.jpashop.repository.ItemSalesSketch.ItemSales;
+import org.junit.Test;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Space-Saving + forward decay 스케치 단위 테스트 (DB 없이, 시계를 직접 움직인다)
+ */
+public class ItemSalesSketchTest {
+
+    private static final Duration HALF_LIFE = Duration.ofHours(1);
+    private static final double DELTA = 1e-9;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2021-01-01T00:00:00Z"));
+
+    @Test
+    public void 가득차면_가장작은_카운터를_넘겨받는다() throws Exception {
+        //given
+        ItemSalesSketch sketch = sketch(2);
+        sell(sketch, 1L, 5);
+        sell(sketch, 2L, 3);
+
+        //when
+        sell(sketch, 3L, 1); //2번 상품(3개) 카운터를 넘겨받는다
+
+        //then
+        List<ItemSales> top = sketch.top(10);
+        assertEquals(Arrays.asList(1L, 3L), itemIds(top));
+        assertEquals(5, top.get(0).getCount(), DELTA);
+        assertEquals(0, top.get(0).getError(), DELTA);
+        assertEquals("넘겨받은 값 + 판매량", 4, top.get(1).getCount(), DELTA);
+        assertEquals("넘겨받은 값은 오차", 3, top.get(1).getError(), DELTA);
+    }
+
+    @Test
+    public void 추정치는_오차범위_안에_있다() throws Exception {
+        //given
+        int capacity = 20;
+        int events = 10000;
+        ItemSalesSketch sketch = sketch(capacity);
+        Map<Long, Integer> actual = new HashMap<>();
+        Random random = new Random(42);
+
+        //when: 상품 100개, 앞쪽 상품에 판매가 몰리는 분포
+        for (int i = 0; i < events; i++) {
+            long itemId = (long) (100 * Math.pow(random.nextDouble(), 3)) + 1;
+            sell(sketch, itemId, 1);
+            actual.merge(itemId, 1, Integer::sum);
+        }
+
+        //then
+        List<ItemSales> top = sketch.top(capacity);
+        assertEquals(capacity, top.size());
+        for (ItemSales sales : top) {
+            int count = actual.getOrDefault(sales.getItemId(), 0);
+            assertTrue("추정치는 실제보다 작지 않다. itemId=" + sales.getItemId(), sales.getCount() >= count - DELTA);
+            assertTrue("추정치 - 오차는 실제보다 크지 않다. itemId=" + sales.getItemId(),
+                    sales.getCount() - sales.getError() <= count + DELTA);
+        }
+        List<Long> tracked = itemIds(top);
+        actual.forEach((itemId, count) -> {
+            if (count > events / capacity) {
+                assertTrue("전체의 1/capacity보다 많이 팔린 상품은 남아 있어야 한다. itemId=" + itemId, tracked.contains(itemId));
+            }
+        });
+    }
+
+    @Test
+    public void 시간이_지나면_반감기마다_절반() throws Exception {
+        //given
+        ItemSalesSketch sketch = sketch(10);
+        sell(sketch, 1L, 8);
+
+        //when, then
+        clock.advance(HALF_LIFE);
+        assertEquals(4, sketch.top(1).get(0).getCount(), DELTA);
+        clock.advance(HALF_LIFE);
+        assertEquals(2, sketch.top(1).get(0).getCount(), DELTA);
+    }
+
+    @Test
+    public void 취소는_주문때_더한만큼_감쇠해서_뺀다() throws Exception {
+        //given
+        ItemSalesSketch sketch = sketch(10);
+        LocalDateTime orderedAt = now();
+        sell(sketch, 1L, 6, orderedAt);
+        clock.advance(HALF_LIFE);
+        sell(sketch, 1L, 2);
+
+        //when: 한 반감기 전 주문 4개 취소
+        sell(sketch, 1L, -4, orderedAt);
+
+        //then: (6 - 4) * 0.5 + 2
+        assertEquals(3, sketch.top(1).get(0).getCount(), DELTA);
+    }
+
+    @Test
+    public void 추적하지_않는_상품_취소는_무시() throws Exception {
+        //given
+        ItemSalesSketch sketch = sketch(10);
+        sell(sketch, 1L, 3);
+
+        //when
+        sell(sketch, 2L, -3, now());
+
+        //then
+        assertEquals(Collections.singletonList(1L), itemIds(sketch.top(10)));
+    }
+
+    @Test
+    public void rebase후에도_카운터와_정렬이_일치() throws Exception {
+        //given
+        ItemSalesSketch sketch = sketch(3);
+        LocalDateTime orderedAt = now();
+        sell(sketch, 1L, 3, orderedAt);
+        sell(sketch, 2L, 3, orderedAt); //1번과 같은 값 -> 상품 id로 순서 결정
+        sell(sketch, 3L, 1, orderedAt);
+
+        //when: 기준 시각을 옮긴 뒤 주문, 취소, 교체
+        clock.advance(HALF_LIFE.multipliedBy(40));
+        sketch.rebase();
+        sell(sketch, 1L, 5);
+        sell(sketch, 2L, -3, orderedAt); //옛 주문 취소 -> 2번은 0
+        sell(sketch, 4L, 1); //가장 작은 2번 카운터를 넘겨받는다
+
+        //then
+        List<ItemSales> top = sketch.top(10);
+        assertEquals(Arrays.asList(1L, 4L, 3L), itemIds(top));
+        assertEquals(5, top.get(0).getCount(), 1e-6);
+        assertEquals(1, top.get(1).getCount(), 1e-6);
+        assertEquals(0, top.get(1).getError(), 1e-6);
+    }
+
+    private ItemSalesSketch sketch(int capacity) {
+        return new ItemSalesSketch(null, true, capacity, HALF_LIFE, 8, clock);
+    }
+
+    private void sell(ItemSalesSketch sketch, Long itemId, int quantity) {
+        sell(sketch, itemId, quantity, now());
+    }
+
+    private void sell(ItemSalesSketch sketch, Long itemId, int quantity, LocalDateTime orderedAt) {
+        sketch.onItemSalesChanged(new ItemSalesChangedEvent(Collections.singletonMap(itemId, quantity), orderedAt));
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    private static List<Long> itemIds(List<ItemSales> top) {
+        return top.stream().map(ItemSales::getItemId).collect(Collectors.toList());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
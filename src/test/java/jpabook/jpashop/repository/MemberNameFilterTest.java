@@ -0,0 +1,89 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.monitoring.SqlStatistics;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class MemberNameFilterTest {
+
+    @Autowired MemberNameFilter memberNameFilter;
+    @Autowired MemberService memberService;
+
+    @Test
+    public void 워밍업_전에는_항상_있을수도_있음() throws Exception {
+        //given
+        MemberNameFilter filter = new MemberNameFilter(null, true, 1000, 0.01);
+
+        //when, then
+        assertFalse(filter.isAvailable());
+        assertTrue("워밍업 전에는 DB로 확인해야 한다.", filter.mightContain("아무도없는이름"));
+    }
+
+    @Test
+    public void 워밍업으로_기존_회원이름을_채운다() throws Exception {
+        //then: InitDb가 만든 회원
+        assertTrue(memberNameFilter.isAvailable());
+        assertTrue(memberNameFilter.mightContain("userA"));
+        assertTrue(memberNameFilter.mightContain("userB"));
+    }
+
+    @Test
+    public void 넣은_이름은_항상_있을수도_있음() throws Exception {
+        //given
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            names.add("필터회원_" + i + "_" + UUID.randomUUID());
+        }
+
+        //when
+        names.forEach(memberNameFilter::put);
+
+        //then: 거짓 음성은 없다
+        for (String name : names) {
+            assertTrue(name, memberNameFilter.mightContain(name));
+        }
+    }
+
+    @Test
+    public void 확실히_없는_이름은_DB_조회_생략() throws Exception {
+        //given
+        String filtered = "필터에만_있는_회원";
+        memberNameFilter.put(filtered); //DB에는 없지만 필터는 있을 수도 있다고 답한다
+        String unknown = "필터에_없는_회원_" + UUID.randomUUID();
+        assertFalse(memberNameFilter.mightContain(unknown));
+
+        //when
+        int lookedUp = countStatements(filtered);
+        int skipped = countStatements(unknown);
+
+        //then
+        assertEquals("확실히 없는 이름은 존재 여부 조회가 없어야 한다.", lookedUp - 1, skipped);
+    }
+
+    private int countStatements(String name) {
+        Member member = new Member();
+        member.setName(name);
+        SqlStatistics statistics = SqlStatistics.start();
+        try {
+            memberService.join(member);
+        } finally {
+            SqlStatistics.clear();
+        }
+        return statistics.getStatements();
+    }
+}
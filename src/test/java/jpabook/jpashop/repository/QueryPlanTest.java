@@ -0,0 +1,277 @@
+package jpabook.jpashop.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.OrderCancelFilter;
+import jpabook.jpashop.repository.order.OrderRepository;
+import jpabook.jpashop.repository.order.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderJsonQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import jpabook.jpashop.service.StockService;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 레퍼지토리 쿼리 실행계획 검사
+ * - 시드 데이터를 넣고 레퍼지토리 메서드를 실행하면서 나간 select를 p6spy로 모은다
+ * - 같은 커넥션에서 EXPLAIN을 실행해서 H2 실행계획에 tableScan이 있고, 그 테이블이 ROW_THRESHOLD보다 크면 실패
+ * - 바인딩 값은 모두 null로 둔다 (H2는 prepare 시점에 인덱스를 고르므로 값과 상관없이 같은 계획)
+ * - 검사하지 않는 쿼리
+ *   OrderQueryRepository.findOrderQueryDtos_parallel: v4와 같은 SQL을 별도 커넥션에서 실행 (커밋 안 된 시드를 못 본다)
+ *   OrderQueryRepository.streamAllByDto_flat: findAllByDto_flat(limit)와 같은 커서 쿼리
+ * - 싱글톤 캐시(ItemSalesSketch, MemberNameFilter)는 롤백될 시드로 채우지 않도록 테스트에서 따로 만든다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class QueryPlanTest {
+
+    private static final int ROW_THRESHOLD = 100;
+    private static final int MEMBERS = 300;
+    private static final int ITEMS = 20;
+    private static final int ORDERS = 600;
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\*\\s*PUBLIC\\.(\\w+)\\.tableScan");
+
+    @Autowired EntityManager em;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderSimpleQueryRepository orderSimpleQueryRepository;
+    @Autowired OrderJsonQueryRepository orderJsonQueryRepository;
+    @Autowired OrderSummaryRepository orderSummaryRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired ItemRepository itemRepository;
+    @Autowired StockService stockService;
+    @Autowired SelectRecorder recorder;
+
+    private final List<String> violations = new ArrayList<>();
+    private List<Long> orderIds;
+    private Long memberId;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SelectRecorder selectRecorder() {
+            return new SelectRecorder();
+        }
+    }
+
+    /**
+     * 기록 중인 스레드에서 나간 select만 모은다 (p6spy 스타터가 JdbcEventListener 빈을 자동 등록)
+     */
+    static class SelectRecorder extends JdbcEventListener {
+
+        private final ThreadLocal<Set<String>> recorded = new ThreadLocal<>();
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            Set<String> sqls = recorded.get();
+            String sql = statementInformation.getSql();
+            if (sqls != null && sql != null && sql.trim().toLowerCase().startsWith("select")) {
+                sqls.add(sql.trim());
+            }
+        }
+
+        Set<String> record(Runnable work) {
+            recorded.set(new LinkedHashSet<>());
+            try {
+                work.run();
+                return recorded.get();
+            } finally {
+                recorded.remove();
+            }
+        }
+    }
+
+    @Before
+    public void seed() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            Member member = new Member();
+            member.setName("회원" + i);
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            members.add(member);
+        }
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            Book book = new Book();
+            book.setName("책" + i);
+            book.setPrice(10000);
+            book.setStockQuantity(ORDERS * 2);
+            em.persist(book);
+            books.add(book);
+        }
+        int[] reserved = new int[ITEMS];
+        for (int i = 0; i < ORDERS; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(new Address("서울", "강가", "123-123"));
+            Book book1 = books.get(i % ITEMS);
+            Book book2 = books.get((i + 1) % ITEMS);
+            em.persist(Order.createOrder(members.get(i % MEMBERS), delivery,
+                    OrderItem.createOrderItem(book1, book1.getPrice(), 1),
+                    OrderItem.createOrderItem(book2, book2.getPrice(), 2)));
+            reserved[i % ITEMS] += 1;
+            reserved[(i + 1) % ITEMS] += 2;
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            stockService.reserve(books.get(i), reserved[i]); //재고는 상품별로 합쳐서 한번에 차감
+        }
+        em.flush();
+        em.clear();
+
+        orderIds = orderRepository.findIdsAfter(0L, 50);
+        memberId = members.get(0).getId();
+    }
+
+    @Test
+    public void 레퍼지토리_쿼리_풀스캔_없음() throws Exception {
+        //주문
+        check("OrderRepository.findIdsAfter", () -> orderRepository.findIdsAfter(orderIds.get(0), 50));
+        check("OrderRepository.findAllWithMemberByIds", () -> orderRepository.findAllWithMemberByIds(orderIds));
+        check("OrderRepository.findAllWithMemberDeliveryByIds", () -> orderRepository.findAllWithMemberDeliveryByIds(orderIds));
+        check("OrderRepository.findAllWithMemberDeliveryAfter", () -> orderRepository.findAllWithMemberDeliveryAfter(orderIds.get(0), 50));
+        check("OrderRepository.findAllByString(status)", () -> orderRepository.findAllByString(statusSearch()));
+        check("OrderRepository.findAllByCriteria(status)", () -> orderRepository.findAllByCriteria(statusSearch()));
+        check("OrderRepository.findCancelableIds(member)", () -> orderRepository.findCancelableIds(memberFilter(), 0L, 100));
+        check("OrderRepository.findCancelableIds(orderDate)", () -> orderRepository.findCancelableIds(dateFilter(), 0L, 100));
+        check("OrderRepository.sumCountByItemAndOrderDate", () -> orderRepository.sumCountByItemAndOrderDate(orderIds));
+
+        //주문 목록은 조건 없이 전체 조회(의도된 풀스캔), orderItems 쿼리는 인덱스를 타야 한다
+        check("OrderSimpleQueryRepository.findOrderDtos", () -> orderSimpleQueryRepository.findOrderDtos(),
+                "ORDERS", "MEMBER", "DELIVERY");
+        check("OrderSimpleQueryRepository.findOrderSummaryDtos", () -> orderSimpleQueryRepository.findOrderSummaryDtos(),
+                "ORDER_SUMMARY");
+        check("OrderQueryRepository.findOrderQueryDtos", () -> orderQueryRepository.findOrderQueryDtos(),
+                "ORDERS", "MEMBER", "DELIVERY");
+        check("OrderQueryRepository.findAllByDto_optimization", () -> orderQueryRepository.findAllByDto_optimization(),
+                "ORDERS", "MEMBER", "DELIVERY");
+        //flat은 모든 주문상품 row를 읽는 inner join -> H2가 order_item부터 읽어도 의도된 풀스캔
+        check("OrderQueryRepository.findAllByDto_flat", () -> orderQueryRepository.findAllByDto_flat(),
+                "ORDERS", "MEMBER", "DELIVERY", "ORDER_ITEM");
+        check("OrderQueryRepository.findAllByDto_flat(limit)", () -> orderQueryRepository.findAllByDto_flat(10),
+                "ORDERS", "MEMBER", "DELIVERY", "ORDER_ITEM");
+        check("OrderJsonQueryRepository.writeSimpleOrders", () -> writeJson(orderJsonQueryRepository::writeSimpleOrders),
+                "ORDERS", "MEMBER", "DELIVERY");
+        check("OrderJsonQueryRepository.writeOrders", () -> writeJson(orderJsonQueryRepository::writeOrders),
+                "ORDERS", "MEMBER", "DELIVERY");
+
+        //회원, 상품, 요약
+        check("MemberRepository.findByName", () -> memberRepository.findByName("회원1"));
+        check("MemberRepository.findAllByIds", () -> memberRepository.findAllByIds(Arrays.asList(memberId)));
+        check("ItemRepository.findAllByIds", () -> itemRepository.findAllByIds(Arrays.asList(1L, 2L)));
+        check("OrderSummaryRepository.findAllByIds", () -> orderSummaryRepository.findAllByIds(orderIds));
+
+        //회원 이름 필터 채우기: id 순 페이지 조회
+        MemberNameFilter memberNameFilter = new MemberNameFilter(em, true, 1000, 0.01);
+        check("MemberNameFilter.findNamesAfter", () -> memberNameFilter.warmUp());
+
+        //인기 상품 재계산: 기간 + 상태 조건으로 주문을 찾고 주문상품은 주문 id로 조회
+        ItemSalesSketch itemSalesSketch = new ItemSalesSketch(em, true, 1000, Duration.ofHours(24), 8, Clock.systemDefaultZone());
+        check("ItemSalesSketch.rebuild", () -> itemSalesSketch.rebuild());
+
+        assertTrue("풀스캔 쿼리가 있으면 안된다.\n" + String.join("\n", violations), violations.isEmpty());
+    }
+
+    private void check(String name, Runnable query, String... fullScanAllowed) {
+        Set<String> allowed = new HashSet<>(Arrays.asList(fullScanAllowed));
+        Set<String> sqls = recorder.record(query);
+        assertFalse(name + " 실행된 select가 없다.", sqls.isEmpty());
+        em.unwrap(Session.class).doWork(connection -> {
+            for (String sql : sqls) {
+                String plan = explain(connection, sql);
+                Matcher matcher = TABLE_SCAN.matcher(plan);
+                while (matcher.find()) {
+                    String table = matcher.group(1);
+                    long rows = count(connection, table);
+                    if (rows > ROW_THRESHOLD && !allowed.contains(table)) {
+                        violations.add(name + ": " + table + " 풀스캔 (" + rows + " rows)\n" + plan);
+                    }
+                }
+            }
+        });
+        em.clear();
+    }
+
+    private static void writeJson(JsonWriter writer) {
+        try {
+            writer.write(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static String explain(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("explain " + sql)) {
+            int parameterCount = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameterCount; i++) {
+                ps.setNull(i, Types.NULL);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                List<String> lines = new ArrayList<>();
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+                return lines.stream().collect(Collectors.joining("\n"));
+            }
+        }
+    }
+
+    private static long count(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*) from " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static OrderSearch statusSearch() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        return orderSearch;
+    }
+
+    private OrderCancelFilter memberFilter() {
+        OrderCancelFilter filter = new OrderCancelFilter();
+        filter.setMemberId(memberId);
+        return filter;
+    }
+
+    private static OrderCancelFilter dateFilter() {
+        OrderCancelFilter filter = new OrderCancelFilter();
+        filter.setOrderDateFrom(LocalDateTime.now().minusHours(1));
+        filter.setOrderDateTo(LocalDateTime.now().plusHours(1));
+        return filter;
+    }
+}
@@ -0,0 +1,183 @@
+package jpabook.jpashop.repository.order;
+
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.event.MemberChangedEvent;
+import jpabook.jpashop.domain.event.OrderChangedEvent;
+import jpabook.jpashop.domain.event.OrdersCanceledEvent;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.StockService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문 검색: DB 검색(m.name like '%이름%')과 메모리 인덱스가 같은 주문 id를 같은 순서로 돌려주는지 검사
+ * 인덱스는 테스트 트랜잭션의 EntityManager로 직접 만들어서 커밋하지 않은 시드도 읽는다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderSearchIndexTest {
+
+    private static final int MAX_ORDERS = 100000;
+
+    @Autowired EntityManager em;
+    @Autowired OrderRepository orderRepository;
+    @Autowired StockService stockService;
+
+    private Member kim;
+    private final List<Long> kimOrderIds = new ArrayList<>();
+    private Long canceledOrderId;
+
+    @Before
+    public void seed() {
+        kim = createMember("검색회원김철수");
+        Member lee = createMember("검색회원이영희");
+        Member other = createMember("다른회원");
+
+        Book book = new Book();
+        book.setName("검색 상품");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+
+        for (int i = 0; i < 3; i++) {
+            kimOrderIds.add(createOrder(kim, book));
+        }
+        canceledOrderId = createOrder(lee, book);
+        createOrder(lee, book);
+        createOrder(other, book);
+        orderRepository.cancelAll(Collections.singletonList(canceledOrderId));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void 회원이름_부분일치_검색() throws Exception {
+        //when: 이름 가운데 일부
+        List<Long> found = ids(orderRepository.findAllByString(search("김철", null)));
+
+        //then
+        assertEquals(kimOrderIds, found);
+        assertTrue("'검색회원'은 두 회원 모두", ids(orderRepository.findAllByString(search("검색회원", null))).containsAll(kimOrderIds));
+    }
+
+    @Test
+    public void 인덱스_검색은_DB_검색과_같다() throws Exception {
+        //given
+        OrderSearchIndex index = new OrderSearchIndex(em, true, MAX_ORDERS);
+        index.rebuild();
+        assertTrue(index.isAvailable());
+
+        //when, then
+        for (OrderSearch search : Arrays.asList(
+                search("김철", null),
+                search("검색회원", null),
+                search("검색회원", OrderStatus.CANCEL),
+                search("영", OrderStatus.ORDER), //한 글자는 n-gram 없이 전체 이름에서 찾는다
+                search(null, OrderStatus.CANCEL),
+                search("없는회원이름", null),
+                page(search("검색회원", null), 1, 2))) {
+            assertEquals(ids(orderRepository.findAllByString(search)), index.search(search));
+        }
+    }
+
+    @Test
+    public void 인덱스는_커밋된_변경을_반영() throws Exception {
+        //given
+        OrderSearchIndex index = new OrderSearchIndex(em, true, MAX_ORDERS);
+        index.rebuild();
+
+        //when
+        index.onOrdersCanceled(new OrdersCanceledEvent(Collections.singletonList(kimOrderIds.get(0))));
+        index.onMemberChanged(new MemberChangedEvent(kim.getId(), "이름바뀐회원"));
+
+        //then
+        assertEquals(kimOrderIds.subList(0, 1), index.search(search("이름바뀐", OrderStatus.CANCEL)));
+        assertTrue("옛 이름으로는 찾을 수 없다.", index.search(search("김철수", null)).isEmpty());
+    }
+
+    @Test
+    public void 페이지_나누기() throws Exception {
+        //when
+        List<Long> first = ids(orderRepository.findAllByString(page(search("김철", null), 0, 2)));
+        List<Long> second = ids(orderRepository.findAllByString(page(search("김철", null), 1, 2)));
+
+        //then
+        assertEquals(kimOrderIds.subList(0, 2), first);
+        assertEquals(kimOrderIds.subList(2, 3), second);
+    }
+
+    @Test
+    public void 큰_페이지_번호는_빈_페이지() throws Exception {
+        //given: page * size가 int 범위를 넘는다
+        OrderSearch search = page(search(null, null), Integer.MAX_VALUE, OrderSearch.MAX_SIZE);
+
+        //when, then
+        assertEquals(Integer.MAX_VALUE, search.getOffset());
+        assertTrue(orderRepository.findAllByString(search).isEmpty());
+    }
+
+    @Test
+    public void 상한을_넘으면_꺼지고_줄어들면_다시_사용() throws Exception {
+        //given: 지금 주문 수 + 1까지만 허용
+        long count = em.createQuery("select count(o) from Order o", Long.class).getSingleResult();
+        OrderSearchIndex index = new OrderSearchIndex(em, true, (int) count + 1);
+        index.rebuild();
+        assertTrue(index.isAvailable());
+
+        //when: 커밋되지 않은 주문 이벤트 두 건 -> 두번째에서 상한 초과
+        index.onOrderChanged(new OrderChangedEvent(-1L, kim.getId(), kim.getName(), OrderStatus.ORDER));
+        index.onOrderChanged(new OrderChangedEvent(-2L, kim.getId(), kim.getName(), OrderStatus.ORDER));
+        assertFalse("상한을 넘으면 DB 검색으로 돌아간다.", index.isAvailable());
+
+        //then: DB 주문 수는 상한 이하 -> 다시 만든다
+        index.rebuildIfUnavailable();
+        assertTrue("주문 수가 상한 이하이면 다시 사용한다.", index.isAvailable());
+        assertEquals(kimOrderIds, index.search(search("김철", null)));
+    }
+
+    private Long createOrder(Member member, Book book) {
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        stockService.reserve(book, 1);
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, book.getPrice(), 1));
+        em.persist(order);
+        return order.getId();
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private static OrderSearch search(String memberName, OrderStatus status) {
+        OrderSearch search = new OrderSearch();
+        search.setMemberName(memberName);
+        search.setOrderStatus(status);
+        return search;
+    }
+
+    private static OrderSearch page(OrderSearch search, int page, int size) {
+        search.setPage(page);
+        search.setSize(size);
+        return search;
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).collect(Collectors.toList());
+    }
+}
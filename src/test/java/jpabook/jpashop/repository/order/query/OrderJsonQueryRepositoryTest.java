@@ -0,0 +1,108 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.StockService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * 직접 직렬화 결과가 기존 API(DTO + ObjectMapper)와 바이트 단위로 같은지 검사
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderJsonQueryRepositoryTest {
+
+    @Autowired EntityManager em;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired OrderJsonQueryRepository orderJsonQueryRepository;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderSimpleQueryRepository orderSimpleQueryRepository;
+    @Autowired StockService stockService;
+
+    @Before
+    public void seed() {
+        Member member1 = new Member();
+        member1.setName("회원 \"따옴표\" \\ 이스케이프");
+        member1.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member1);
+
+        Member member2 = new Member();
+        member2.setName("member2");
+        em.persist(member2);
+
+        Book book1 = new Book();
+        book1.setName("JPA1 BOOK");
+        book1.setPrice(10000);
+        book1.setStockQuantity(100);
+        em.persist(book1);
+
+        Book book2 = new Book();
+        book2.setName("JPA2 BOOK");
+        book2.setPrice(20000);
+        book2.setStockQuantity(100);
+        em.persist(book2);
+
+        for (int i = 0; i < 5; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(i % 2 == 0 ? new Address("부산", "해변\t길", "555") : null); //주소 없는 배송 포함
+            Member member = i % 2 == 0 ? member1 : member2;
+            stockService.reserve(book1, i + 1);
+            stockService.reserve(book2, 1);
+            em.persist(Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(book1, book1.getPrice(), i + 1),
+                    OrderItem.createOrderItem(book2, book2.getPrice(), 1)));
+            if (i == 2) {
+                //주문상품 없는 주문 -> left join row 하나 (item 컬럼이 모두 null), orderItems는 null
+                Delivery emptyDelivery = new Delivery();
+                emptyDelivery.setAddress(new Address("대구", "중앙로", "777"));
+                em.persist(Order.createOrder(member2, emptyDelivery));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void v4_simple_orders_같은_JSON() throws Exception {
+        //given
+        String expected = objectMapper.writeValueAsString(
+                Collections.singletonMap("data", orderSimpleQueryRepository.findOrderDtos()));
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderJsonQueryRepository.writeSimpleOrders(out);
+
+        //then
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void v5_orders_같은_JSON() throws Exception {
+        //given
+        String expected = objectMapper.writeValueAsString(orderQueryRepository.findAllByDto_optimization());
+        assertTrue("주문상품 없는 주문이 포함되어야 한다.", expected.contains("\"orderItems\":null"));
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderJsonQueryRepository.writeOrders(out);
+
+        //then
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,183 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.order.OrderCancelFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 대량 주문 취소: 청크 단위 조건부 update + 상품별 재고 일괄 복구
+ * - 단건 취소와 동시에 실행되어도 재고는 주문마다 한번만 복구되어야 한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.bulk-cancel.chunk-size=2")
+public class BulkCancelServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired BulkCancelService bulkCancelService;
+    @Autowired OrderService orderService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private CommittedTestData data;
+    private TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        data = new CommittedTestData(em, transactionManager, jdbcTemplate);
+    }
+
+    @After
+    public void cleanUp() {
+        data.delete();
+    }
+
+    @Test
+    public void 조건에_맞는_주문만_취소하고_재고_복구() throws Exception {
+        //given
+        Member member = data.createMember("대량취소회원");
+        Member other = data.createMember("대량취소제외회원");
+        Book book1 = data.createBook("대량취소 상품1", 100);
+        Book book2 = data.createBook("대량취소 상품2", 100);
+        List<Long> orderIds = Arrays.asList(
+                orderService.order(member.getId(), book1.getId(), 1),
+                orderService.order(member.getId(), book2.getId(), 2),
+                orderService.order(member.getId(), book1.getId(), 3)); //청크(2건) 2개
+        Long otherOrderId = orderService.order(other.getId(), book1.getId(), 4);
+
+        //when
+        int canceled = bulkCancelService.cancel(filterByMember(member));
+
+        //then
+        assertEquals(3, canceled);
+        orderIds.forEach(orderId -> assertEquals(OrderStatus.CANCEL, findStatus(orderId)));
+        assertEquals("다른 회원의 주문은 그대로", OrderStatus.ORDER, findStatus(otherOrderId));
+        assertEquals(100 - 4, itemRepository.findStockQuantity(book1.getId()));
+        assertEquals(100, itemRepository.findStockQuantity(book2.getId()));
+    }
+
+    @Test
+    public void 이미_취소된_주문은_재고를_다시_복구하지_않는다() throws Exception {
+        //given
+        Member member = data.createMember("취소후대량취소회원");
+        Book book = data.createBook("취소후대량취소 상품", 100);
+        Long canceledOrderId = orderService.order(member.getId(), book.getId(), 5);
+        orderService.order(member.getId(), book.getId(), 7);
+        orderService.cancelOrder(canceledOrderId);
+
+        //when
+        int canceled = bulkCancelService.cancel(filterByMember(member));
+
+        //then
+        assertEquals(1, canceled);
+        assertEquals(100, itemRepository.findStockQuantity(book.getId()));
+    }
+
+    @Test
+    public void 단건취소와_대량취소가_동시에_실행되어도_재고는_한번만_복구() throws Exception {
+        //given
+        int orderCount = 20;
+        Member member = data.createMember("동시취소회원");
+        Book book = data.createBook("동시취소 상품", 100);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < orderCount; i++) {
+            orderIds.add(orderService.order(member.getId(), book.getId(), 1));
+        }
+
+        //when: 한 스레드는 뒤에서부터 단건 취소, 다른 스레드는 대량 취소
+        AtomicInteger singleCanceled = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?> single = executor.submit(() -> {
+            start.await();
+            for (int i = orderIds.size() - 1; i >= 0; i--) {
+                try {
+                    orderService.cancelOrder(orderIds.get(i));
+                    singleCanceled.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    //대량 취소가 먼저 취소한 주문
+                }
+            }
+            return null;
+        });
+        Future<Integer> bulk = executor.submit(() -> {
+            start.await();
+            return bulkCancelService.cancel(filterByMember(member));
+        });
+        start.countDown();
+        single.get();
+        int bulkCanceled = bulk.get();
+        executor.shutdown();
+
+        //then
+        assertEquals("모든 주문은 한쪽에서만 취소되어야 한다.", orderCount, singleCanceled.get() + bulkCanceled);
+        orderIds.forEach(orderId -> assertEquals(OrderStatus.CANCEL, findStatus(orderId)));
+        assertEquals("재고는 주문마다 한번만 복구되어야 한다.", 100, itemRepository.findStockQuantity(book.getId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ORDER가_아닌_상태는_예외() throws Exception {
+        //given
+        OrderCancelFilter filter = new OrderCancelFilter();
+        filter.setStatus(OrderStatus.CANCEL);
+        filter.setMemberId(1L);
+
+        //when
+        bulkCancelService.cancel(filter);
+
+        //then
+        fail("ORDER 외의 상태는 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 재고_일괄증가는_2차캐시도_비운다() throws Exception {
+        //given
+        Book book1 = data.createBook("일괄증가 상품1", 10);
+        Book book2 = data.createBook("일괄증가 상품2", 20);
+        tx.executeWithoutResult(status -> em.find(Item.class, book1.getId())); //2차 캐시에 올린다
+        Map<Long, Integer> quantities = new TreeMap<>();
+        quantities.put(book1.getId(), 3);
+        quantities.put(book2.getId(), 4);
+
+        //when
+        tx.executeWithoutResult(status -> itemRepository.increaseStocks(quantities));
+
+        //then
+        assertEquals(13, itemRepository.findStockQuantity(book1.getId()));
+        assertEquals(24, itemRepository.findStockQuantity(book2.getId()));
+        int cached = tx.execute(status -> em.find(Item.class, book1.getId()).getStockQuantity());
+        assertEquals("엔티티 조회도 증가된 재고여야 한다.", 13, cached);
+    }
+
+    private OrderCancelFilter filterByMember(Member member) {
+        OrderCancelFilter filter = new OrderCancelFilter();
+        filter.setMemberId(member.getId());
+        return filter;
+    }
+
+    private OrderStatus findStatus(Long orderId) {
+        return OrderStatus.valueOf(jdbcTemplate.queryForObject(
+                "select status from orders where order_id = ?", String.class, orderId));
+    }
+}
@@ -0,0 +1,155 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.SqlStatistics;
+import jpabook.jpashop.repository.ItemRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 대량 주문: 청크마다 트랜잭션 하나 -> 실패하면 그 청크만 롤백되고 앞 청크의 주문은 남는다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.bulk-order.chunk-size=2",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+public class BulkOrderServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired BulkOrderService bulkOrderService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private CommittedTestData data;
+
+    @Before
+    public void setUp() {
+        data = new CommittedTestData(em, transactionManager, jdbcTemplate);
+    }
+
+    @After
+    public void cleanUp() {
+        data.delete();
+    }
+
+    @Test
+    public void 청크로_나눠서_입력순서대로_주문() throws Exception {
+        //given
+        Member member1 = data.createMember("대량주문회원1");
+        Member member2 = data.createMember("대량주문회원2");
+        Book book1 = data.createBook("대량 상품1", 100);
+        Book book2 = data.createBook("대량 상품2", 100);
+        List<OrderLineDto> lines = Arrays.asList(
+                new OrderLineDto(member1.getId(), book1.getId(), 1),
+                new OrderLineDto(member2.getId(), book2.getId(), 2),
+                new OrderLineDto(member1.getId(), book2.getId(), 3),
+                new OrderLineDto(member2.getId(), book1.getId(), 4),
+                new OrderLineDto(member1.getId(), book1.getId(), 5));
+
+        //when
+        BulkOrderResult result = bulkOrderService.order(lines);
+
+        //then
+        assertTrue(result.isCompleted());
+        List<Long> orderIds = result.getOrderIds();
+        assertEquals(lines.size(), orderIds.size());
+        for (int i = 0; i < lines.size(); i++) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "select o.member_id, oi.item_id, oi.count from orders o join order_item oi on oi.order_id = o.order_id" +
+                            " where o.order_id = ?", orderIds.get(i));
+            OrderLineDto line = lines.get(i);
+            assertEquals("주문 id는 입력 순서대로", line.getMemberId().longValue(), ((Number) row.get("MEMBER_ID")).longValue());
+            assertEquals(line.getItemId().longValue(), ((Number) row.get("ITEM_ID")).longValue());
+            assertEquals(line.getCount(), ((Number) row.get("COUNT")).intValue());
+        }
+        assertEquals("상품별로 합쳐서 차감", 100 - 10, itemRepository.findStockQuantity(book1.getId()));
+        assertEquals("상품별로 합쳐서 차감", 100 - 5, itemRepository.findStockQuantity(book2.getId()));
+    }
+
+    @Test
+    public void insert는_배치로_묶인다() throws Exception {
+        //given
+        Member member = data.createMember("배치주문회원");
+        Book book = data.createBook("배치 상품", 100);
+        List<OrderLineDto> lines = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            lines.add(new OrderLineDto(member.getId(), book.getId(), 1));
+        }
+
+        //when
+        SqlStatistics statistics = SqlStatistics.start();
+        try {
+            bulkOrderService.order(lines);
+        } finally {
+            SqlStatistics.clear();
+        }
+
+        //then: 청크(2건) 3개 -> 같은 insert는 청크마다 한번, 라인 수(6)만큼 반복되지 않는다
+        Map.Entry<String, Integer> repeated = statistics.mostRepeatedShape();
+        assertTrue("가장 많이 반복된 SQL: " + repeated, repeated.getValue() <= 3);
+        assertEquals("재고 update는 청크마다 상품별로 한번", 100 - 6, itemRepository.findStockQuantity(book.getId()));
+    }
+
+    @Test
+    public void 실패한_청크만_롤백되고_앞_청크는_커밋() throws Exception {
+        //given
+        Member member = data.createMember("롤백주문회원");
+        Book book = data.createBook("롤백 상품", 100);
+        List<OrderLineDto> lines = Arrays.asList(
+                new OrderLineDto(member.getId(), book.getId(), 1),
+                new OrderLineDto(member.getId(), book.getId(), 1),
+                new OrderLineDto(member.getId(), book.getId(), 1),
+                new OrderLineDto(-1L, book.getId(), 1)); //두번째 청크의 없는 회원
+
+        //when
+        BulkOrderResult result = bulkOrderService.order(lines);
+
+        //then
+        assertFalse(result.isCompleted());
+        assertEquals(Integer.valueOf(1), result.getFailedChunk());
+        assertEquals(Integer.valueOf(2), result.getFailedFromLine());
+        assertEquals("첫 청크의 주문만 커밋", 2, result.getOrderIds().size());
+        assertEquals(2, countOrders(member));
+        assertEquals("실패한 청크의 재고 차감은 롤백", 100 - 2, itemRepository.findStockQuantity(book.getId()));
+    }
+
+    @Test
+    public void 합친_수량이_재고보다_많으면_청크_실패() throws Exception {
+        //given
+        Member member = data.createMember("재고부족회원");
+        Book book = data.createBook("재고부족 상품", 5);
+
+        //when: 라인 하나씩은 재고 이하지만 합치면 초과
+        BulkOrderResult result = bulkOrderService.order(Arrays.asList(
+                new OrderLineDto(member.getId(), book.getId(), 3),
+                new OrderLineDto(member.getId(), book.getId(), 3)));
+
+        //then
+        assertEquals(Integer.valueOf(0), result.getFailedChunk());
+        assertTrue(result.getOrderIds().isEmpty());
+        assertEquals(5, itemRepository.findStockQuantity(book.getId()));
+    }
+
+    private int countOrders(Member member) {
+        return jdbcTemplate.queryForObject("select count(*) from orders where member_id = ?", Integer.class, member.getId());
+    }
+}
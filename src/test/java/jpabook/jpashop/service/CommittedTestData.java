@@ -0,0 +1,89 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 트랜잭션을 커밋하는 테스트(@Transactional 롤백을 쓸 수 없는 테스트)용 데이터
+ * - 회원, 상품은 각자 트랜잭션으로 커밋해서 만들고 id를 기억한다
+ * - delete(): 회원의 주문(요약, 주문상품, 배송 포함) -> 상품 -> 회원 순서로 FK를 지키며 JDBC로 삭제
+ * - 같은 컨텍스트를 쓰는 다음 테스트가 지운 엔티티를 2차 캐시에서 읽지 않도록 캐시도 비운다
+ * 테스트마다 @Before에서 만들고 @After에서 delete()
+ */
+final class CommittedTestData {
+
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Long> memberIds = new ArrayList<>();
+    private final List<Long> itemIds = new ArrayList<>();
+
+    CommittedTestData(EntityManager em, PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate) {
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    Member createMember(String name) {
+        Member member = tx.execute(status -> {
+            Member m = new Member();
+            m.setName(name);
+            m.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(m);
+            return m;
+        });
+        memberIds.add(member.getId());
+        return member;
+    }
+
+    //가격은 10000원
+    Book createBook(String name, int stockQuantity) {
+        Book book = tx.execute(status -> {
+            Book b = new Book();
+            b.setName(name);
+            b.setPrice(10000);
+            b.setStockQuantity(stockQuantity);
+            em.persist(b);
+            return b;
+        });
+        itemIds.add(book.getId());
+        return book;
+    }
+
+    List<Long> getItemIds() {
+        return Collections.unmodifiableList(itemIds);
+    }
+
+    void delete() {
+        memberIds.forEach(this::deleteMemberOrders);
+        for (Long itemId : itemIds) {
+            jdbcTemplate.update("delete from category_item where item_id = ?", itemId);
+            jdbcTemplate.update("delete from item where item_id = ?", itemId);
+        }
+        for (Long memberId : memberIds) {
+            jdbcTemplate.update("delete from member where member_id = ?", memberId);
+        }
+        em.getEntityManagerFactory().getCache().evictAll();
+    }
+
+    private void deleteMemberOrders(Long memberId) {
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, memberId);
+        jdbcTemplate.update("delete from order_summary where member_id = ?", memberId);
+        jdbcTemplate.update("delete from order_item where order_id in (select order_id from orders where member_id = ?)", memberId);
+        jdbcTemplate.update("delete from orders where member_id = ?", memberId);
+        for (Long deliveryId : deliveryIds) {
+            jdbcTemplate.update("delete from delivery where delivery_id = ?", deliveryId);
+        }
+    }
+}
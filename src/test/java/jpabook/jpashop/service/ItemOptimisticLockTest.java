@@ -0,0 +1,99 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.ItemRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문(재고 차감)과 관리자 상품 수정(가격 + 재고 추가)이 동시에 일어나도 어느 쪽 변경도 사라지면 안 된다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.retry.max-attempts=100") //주문이 몰려도 상품 수정 재시도가 바닥나지 않도록
+public class ItemOptimisticLockTest {
+
+    private static final int ORDER_THREADS = 4;
+    private static final int ORDERS_PER_THREAD = 50;
+    private static final int ADMIN_THREADS = 2;
+    private static final int UPDATES_PER_THREAD = 20;
+    private static final int RESTOCK = 5;
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private CommittedTestData data;
+
+    @Before
+    public void setUp() {
+        data = new CommittedTestData(em, transactionManager, jdbcTemplate);
+    }
+
+    @After
+    public void cleanUp() {
+        data.delete();
+    }
+
+    @Test
+    public void 주문과_상품수정_동시실행_변경유실_없음() throws Exception {
+        //given
+        int initialStock = 1000;
+        Member member = data.createMember("동시수정회원");
+        Book book = data.createBook("인기 상품", initialStock);
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(ORDER_THREADS + ADMIN_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < ORDER_THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    orderService.order(member.getId(), book.getId(), 1);
+                }
+                return null;
+            }));
+        }
+        for (int t = 0; t < ADMIN_THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    //수정 화면을 열었을 때의 재고에 RESTOCK만큼 더해서 저장
+                    int seenStock = itemRepository.findStockQuantity(book.getId());
+                    itemService.updateItem(new UpdateItemDto(book.getId(), "인기 상품", 10000 + thread * 100 + i,
+                            seenStock + RESTOCK, seenStock));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(); //재시도가 바닥나서 실패하면 여기서 예외
+        }
+        executor.shutdown();
+
+        //then
+        int expected = initialStock - ORDER_THREADS * ORDERS_PER_THREAD + ADMIN_THREADS * UPDATES_PER_THREAD * RESTOCK;
+        assertEquals("주문으로 줄어든 재고와 관리자가 추가한 재고가 모두 반영되어야 한다.",
+                expected, itemRepository.findStockQuantity(book.getId()));
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -54,4 +56,93 @@ public class MemberServiceTest {
         //then
         fail("예외가 발생해야 한다.");
     }
-}
\ No newline at end of file
+
+    @Test(expected = IllegalStateException.class)
+    public void 중복_회원_예외_유니크_제약() throws Exception {
+        //given -> 블룸 필터를 거치지 않고 저장된 회원 (다른 서버에서 가입한 경우)
+        Member member1 = new Member();
+        member1.setName("유니크제약_중복회원");
+        em.persist(member1);
+        em.flush(); //member1 insert가 join 안의 flush에 섞이지 않도록 먼저 반영
+
+        Member member2 = new Member();
+        member2.setName("유니크제약_중복회원");
+
+        //when
+        memberService.join(member2); //필터가 없는 이름으로 판단해도 유니크 제약 위반이 중복 회원 예외로 바뀌어야 한다
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 이름변경_중복_예외() throws Exception {
+        //given
+        Member member1 = new Member();
+        member1.setName("이름변경_기존회원");
+        Member member2 = new Member();
+        member2.setName("이름변경_대상회원");
+        memberService.join(member1);
+        memberService.join(member2);
+
+        //when
+        memberService.update(member2.getId(), "이름변경_기존회원");
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 이름변경_중복_예외_유니크_제약() throws Exception {
+        //given -> 블룸 필터를 거치지 않고 저장된 회원
+        Member member1 = new Member();
+        member1.setName("이름변경_유니크제약_기존회원");
+        em.persist(member1);
+        em.flush();
+
+        Member member2 = new Member();
+        member2.setName("이름변경_유니크제약_대상회원");
+        memberService.join(member2);
+
+        //when
+        memberService.update(member2.getId(), "이름변경_유니크제약_기존회원"); //DataIntegrityViolationException이 아니라 중복 회원 예외
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 같은_이름으로_변경() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("이름유지회원");
+        memberService.join(member);
+
+        //when
+        memberService.update(member.getId(), "이름유지회원");
+
+        //then
+        assertEquals("이름유지회원", memberService.findOne(member.getId()).getName());
+    }
+
+    @Test
+    public void 여러회원_id순서조회() throws Exception {
+        //given
+        Member member1 = new Member();
+        member1.setName("lee");
+        Member member2 = new Member();
+        member2.setName("park");
+        memberService.join(member1);
+        memberService.join(member2);
+        em.clear();
+
+        //when -> 요청 순서, 중복 id, 없는 id
+        List<Member> members = memberService.findMultiple(
+                Arrays.asList(member2.getId(), -1L, member1.getId(), member2.getId()));
+
+        //then
+        assertEquals("없는 id와 중복 id는 빠져야 한다.", 2, members.size());
+        assertEquals("요청한 id 순서대로 조회되어야 한다.", member2.getId(), members.get(0).getId());
+        assertEquals(member1.getId(), members.get(1).getId());
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 
@@ -82,6 +83,59 @@ public class OrderServiceTest {
         assertEquals("주문이 취소된 상품은 그만큼 재고가 증가해야한다", 10, item.getStockQuantity());
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void 이미_취소된_주문은_다시_취소할_수_없다() throws Exception {
+        //given
+        Member member = createMember();
+        Book item = createBook("도시 JPA", 10000, 10);
+        Long orderId = orderService.order(member.getId(), item.getId(), 2);
+        orderService.cancelOrder(orderId);
+
+        //when: 재고가 두번 복구되면 안된다
+        orderService.cancelOrder(orderId);
+
+        //then
+        fail("이미 취소된 주문 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 장바구니주문() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("도시 JPA", 10000, 10);
+        Book book2 = createBook("도시 Spring", 20000, 5);
+
+        //when
+        Long orderId = orderService.orderCart(member.getId(), Arrays.asList(
+                new CartLineDto(book2.getId(), 2),
+                new CartLineDto(book1.getId(), 3)));
+
+        //then
+        Order getOrder = orderRepository.findOne(orderId);
+
+        assertEquals("상품 주문시 상태는 ORDER", OrderStatus.ORDER, getOrder.getStatus());
+        assertEquals("장바구니 상품이 주문 하나에 모두 담겨야 한다.", 2, getOrder.getOrderItems().size());
+        assertEquals("주문 가격은 상품별 (가격 * 수량)의 합이다.", 20000 * 2 + 10000 * 3, getOrder.getTotalPrice());
+        assertEquals("주문 수량만큼 재고가 줄어야한다.", 7, book1.getStockQuantity());
+        assertEquals("주문 수량만큼 재고가 줄어야한다.", 3, book2.getStockQuantity());
+    }
+
+    @Test(expected = NotEnoughStockException.class)
+    public void 장바구니주문_재고수량초과() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("도시 JPA", 10000, 10);
+        Book book2 = createBook("도시 Spring", 20000, 5);
+
+        //when
+        orderService.orderCart(member.getId(), Arrays.asList(
+                new CartLineDto(book1.getId(), 3),
+                new CartLineDto(book2.getId(), 6)));
+
+        //then
+        fail("재고 수량 부족 예외가 발생해야 한다.");
+    }
+
 
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
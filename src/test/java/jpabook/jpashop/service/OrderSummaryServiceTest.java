@@ -0,0 +1,156 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.event.OrderChangedEvent;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderSummaryService.CheckResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문 요약 테이블은 커밋 직전에 갱신되므로 커밋한 뒤 JDBC로 확인
+ * 요약 갱신/재생성/검사가 여러 페이지를 거치도록 페이지 크기를 작게 둔다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.order-summary.page-size=2")
+public class OrderSummaryServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderSummaryService orderSummaryService;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired BulkOrderService bulkOrderService;
+    @Autowired ApplicationEventPublisher eventPublisher;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private CommittedTestData data;
+
+    @Before
+    public void setUp() {
+        data = new CommittedTestData(em, transactionManager, jdbcTemplate);
+    }
+
+    @After
+    public void cleanUp() {
+        data.delete();
+    }
+
+    @Test
+    public void 주문_취소_회원이름변경이_요약에_반영() throws Exception {
+        //given
+        Member member = data.createMember("요약회원");
+        Book book = data.createBook("요약 상품", 10);
+
+        //when, then
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        Map<String, Object> summary = findSummary(orderId);
+        assertEquals(OrderStatus.ORDER.name(), summary.get("STATUS"));
+        assertEquals("요약회원", summary.get("MEMBER_NAME"));
+        assertEquals(20000, ((Number) summary.get("TOTAL_PRICE")).intValue());
+
+        orderService.cancelOrder(orderId);
+        assertEquals(OrderStatus.CANCEL.name(), findSummary(orderId).get("STATUS"));
+
+        memberService.update(member.getId(), "요약회원_변경");
+        assertEquals("요약회원_변경", findSummary(orderId).get("MEMBER_NAME"));
+    }
+
+    @Test
+    public void 트랜잭션_밖에서_온_이벤트도_요약_갱신() throws Exception {
+        //given
+        Member member = data.createMember("트랜잭션밖요약회원");
+        Book book = data.createBook("트랜잭션밖 요약 상품", 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 1);
+        jdbcTemplate.update("delete from order_summary where order_id = ?", orderId);
+
+        //when: 리스너가 쓰기 트랜잭션을 새로 열어서 갱신해야 한다
+        eventPublisher.publishEvent(new OrderChangedEvent(orderId, member.getId(), member.getName(), OrderStatus.ORDER));
+
+        //then
+        assertEquals(OrderStatus.ORDER.name(), findSummary(orderId).get("STATUS"));
+    }
+
+    @Test
+    public void 대량_주문_요약은_페이지로_나눠서_갱신() throws Exception {
+        //given: 한 청크(트랜잭션)에 주문 7건 -> 커밋 직전 요약 갱신은 2건씩 4페이지, 페이지 사이마다 flush/clear
+        Member member = data.createMember("요약대량주문회원");
+        Book book = data.createBook("요약 대량 상품", 100);
+        List<OrderLineDto> lines = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            lines.add(new OrderLineDto(member.getId(), book.getId(), i % 3 + 1));
+        }
+
+        //when
+        List<Long> orderIds = bulkOrderService.order(lines).getOrderIds();
+
+        //then: 페이지 사이에 비워도 모든 주문의 요약이 빠짐없이 맞게 저장된다
+        assertEquals(lines.size(), orderIds.size());
+        for (int i = 0; i < orderIds.size(); i++) {
+            Map<String, Object> summary = findSummary(orderIds.get(i));
+            assertEquals("요약대량주문회원", summary.get("MEMBER_NAME"));
+            assertEquals(10000 * lines.get(i).getCount(), ((Number) summary.get("TOTAL_PRICE")).intValue());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 읽기전용_트랜잭션에서_온_이벤트는_예외() throws Exception {
+        //given
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        //when: 요약 갱신이 조용히 버려지면 안된다
+        readOnlyTx.executeWithoutResult(status ->
+                eventPublisher.publishEvent(new OrderChangedEvent(1L, 1L, "userA", OrderStatus.ORDER)));
+
+        //then
+        fail("읽기 전용 트랜잭션이면 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 재생성_후_정합성_검사() throws Exception {
+        //given
+        Member member = data.createMember("재생성요약회원");
+        Book book = data.createBook("재생성 요약 상품", 10);
+        Long missingOrderId = orderService.order(member.getId(), book.getId(), 1);
+        Long staleOrderId = orderService.order(member.getId(), book.getId(), 1);
+
+        orderSummaryService.rebuild();
+        assertTrue("재생성 직후에는 일치해야 한다.", orderSummaryService.check().isConsistent());
+
+        //when: 요약 하나는 지우고 하나는 값을 바꾼다
+        jdbcTemplate.update("delete from order_summary where order_id = ?", missingOrderId);
+        jdbcTemplate.update("update order_summary set status = 'CANCEL' where order_id = ?", staleOrderId);
+
+        //then
+        CheckResult result = orderSummaryService.check();
+        assertFalse(result.isConsistent());
+        assertTrue(result.getMissing().contains(missingOrderId));
+        assertTrue(result.getStale().contains(staleOrderId));
+
+        int rebuilt = orderSummaryService.rebuild();
+        assertEquals(result.getChecked(), rebuilt);
+        assertTrue("다시 재생성하면 일치해야 한다.", orderSummaryService.check().isConsistent());
+    }
+
+    private Map<String, Object> findSummary(Long orderId) {
+        return jdbcTemplate.queryForMap("select * from order_summary where order_id = ?", orderId);
+    }
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 하나의 상품에 여러 스레드가 동시에 주문 -> 초과 판매가 없어야 한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class StockServiceTest {
+
+    private static final int THREADS = 4;
+    private static final int ORDERS_PER_THREAD = 50;
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired ItemRepository itemRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private CommittedTestData data;
+
+    @Before
+    public void setUp() {
+        data = new CommittedTestData(em, transactionManager, jdbcTemplate);
+    }
+
+    @After
+    public void cleanUp() {
+        data.delete();
+    }
+
+    @Test
+    public void 동시주문_초과판매_없음() throws Exception {
+        //given
+        int stockQuantity = THREADS * ORDERS_PER_THREAD / 2; //주문의 절반만 성공할 수 있는 재고
+        Member member = data.createMember("동시주문회원");
+        Book book = data.createBook("인기 상품", stockQuantity);
+
+        //when
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        orderService.order(member.getId(), book.getId(), 1);
+                        success.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        soldOut.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        int total = THREADS * ORDERS_PER_THREAD;
+        assertEquals("재고만큼만 주문이 성공해야 한다.", stockQuantity, success.get());
+        assertEquals("나머지 주문은 재고 부족이어야 한다.", total - stockQuantity, soldOut.get());
+        assertEquals("재고는 0이어야 한다.", 0, itemRepository.findStockQuantity(book.getId()));
+    }
+}
@@ -0,0 +1,139 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 메모리 재고 카운터 모드(jpashop.stock.striped-counter.enabled=true)
+ * - 동시 주문에서도 초과 판매가 없고, reconcile 후 DB 재고가 카운터와 같아야 한다
+ * - 주문 트랜잭션이 롤백되거나 주문을 취소하면 카운터도 되돌아가야 한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.stock.striped-counter.enabled=true",
+        "jpashop.stock.striped-counter.reconcile-interval-ms=3600000" //DB 반영은 테스트에서 직접 호출
+})
+public class StripedStockCounterTest {
+
+    private static final int THREADS = 4;
+    private static final int ORDERS_PER_THREAD = 50;
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired StockService stockService;
+    @Autowired StripedStockCounter stripedStockCounter;
+    @Autowired ItemRepository itemRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private CommittedTestData data;
+    private TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        data = new CommittedTestData(em, transactionManager, jdbcTemplate);
+    }
+
+    @After
+    public void cleanUp() {
+        data.getItemIds().forEach(stripedStockCounter::evict);
+        data.delete();
+    }
+
+    @Test
+    public void 동시주문_초과판매_없음() throws Exception {
+        //given
+        int stockQuantity = THREADS * ORDERS_PER_THREAD / 2; //주문의 절반만 성공할 수 있는 재고
+        Member member = data.createMember("카운터주문회원");
+        Book book = data.createBook("카운터 상품", stockQuantity);
+
+        //when
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        orderService.order(member.getId(), book.getId(), 1);
+                        success.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        soldOut.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        int total = THREADS * ORDERS_PER_THREAD;
+        assertEquals("재고만큼만 주문이 성공해야 한다.", stockQuantity, success.get());
+        assertEquals("나머지 주문은 재고 부족이어야 한다.", total - stockQuantity, soldOut.get());
+        assertEquals("reconcile 전에는 DB 재고가 그대로다.", stockQuantity, itemRepository.findStockQuantity(book.getId()));
+
+        stripedStockCounter.reconcile();
+        assertEquals("reconcile 후 DB 재고는 0이어야 한다.", 0, itemRepository.findStockQuantity(book.getId()));
+    }
+
+    @Test
+    public void 롤백된_주문은_카운터_복구() throws Exception {
+        //given
+        Member member = data.createMember("카운터롤백회원");
+        Book book = data.createBook("카운터 롤백 상품", 10);
+
+        //when
+        tx.executeWithoutResult(status -> {
+            stockService.reserve(book, 7);
+            status.setRollbackOnly();
+        });
+
+        //then
+        orderService.order(member.getId(), book.getId(), 10); //롤백된 7개가 돌아왔으므로 전체 재고 주문 가능
+        stripedStockCounter.reconcile();
+        assertEquals("롤백된 차감은 DB에 반영되지 않아야 한다.", 0, itemRepository.findStockQuantity(book.getId()));
+    }
+
+    @Test
+    public void 주문취소_재고복구() throws Exception {
+        //given
+        Member member = data.createMember("카운터취소회원");
+        Book book = data.createBook("카운터 취소 상품", 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 4);
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        stripedStockCounter.reconcile();
+        assertEquals("취소한 주문의 재고는 복구되어야 한다.", 10, itemRepository.findStockQuantity(book.getId()));
+    }
+}
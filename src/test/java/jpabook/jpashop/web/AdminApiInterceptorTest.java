@@ -0,0 +1,70 @@
+package jpabook.jpashop.web;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.AntPathMatcher;
+
+import static org.junit.Assert.*;
+
+public class AdminApiInterceptorTest {
+
+    @Test
+    public void 토큰이_같으면_허용() throws Exception {
+        //given
+        AdminApiInterceptor interceptor = new AdminApiInterceptor("secret");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/order-summaries/rebuild");
+        request.addHeader(AdminApiInterceptor.TOKEN_HEADER, "secret");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when, then
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void 토큰이_없거나_다르면_403() throws Exception {
+        //given
+        AdminApiInterceptor interceptor = new AdminApiInterceptor("secret");
+
+        //when, then
+        assertForbidden(interceptor, null);
+        assertForbidden(interceptor, "");
+        assertForbidden(interceptor, "secret2");
+    }
+
+    @Test
+    public void 대량_주문_취소는_관리자_API() throws Exception {
+        //given
+        AdminApiInterceptor interceptor = new AdminApiInterceptor("secret");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/orders/bulk-cancel");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when, then
+        assertTrue("인터셉터 경로 패턴에 포함되어야 한다.",
+                new AntPathMatcher().match(AdminApiInterceptor.PATH_PATTERN, request.getRequestURI()));
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    public void 토큰을_설정하지_않으면_모두_403() throws Exception {
+        //given
+        AdminApiInterceptor interceptor = new AdminApiInterceptor("");
+
+        //when, then
+        assertForbidden(interceptor, null);
+        assertForbidden(interceptor, "");
+    }
+
+    private static void assertForbidden(AdminApiInterceptor interceptor, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/order-summaries/check");
+        if (token != null) {
+            request.addHeader(AdminApiInterceptor.TOKEN_HEADER, token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(403, response.getStatus());
+    }
+}
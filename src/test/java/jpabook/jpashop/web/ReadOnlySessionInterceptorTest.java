@@ -0,0 +1,95 @@
+package jpabook.jpashop.web;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * OSIV 대신 요청 단위 EntityManager를 직접 바인딩하고 인터셉터만 실행
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReadOnlySessionInterceptorTest {
+
+    @Autowired EntityManagerFactory emf;
+    @Autowired ReadOnlySessionInterceptor interceptor;
+
+    private EntityManager em;
+    private Session session;
+
+    @Before
+    public void openSession() {
+        em = emf.createEntityManager();
+        session = em.unwrap(Session.class);
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+    }
+
+    @After
+    public void closeSession() {
+        TransactionSynchronizationManager.unbindResource(emf);
+        em.close();
+    }
+
+    @Test
+    public void 표시한_핸들러는_요청동안만_읽기전용() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HandlerMethod handler = handler("readOnly");
+
+        //when, then
+        interceptor.preHandle(request, response, handler);
+        assertTrue(session.isDefaultReadOnly());
+        assertEquals(FlushMode.MANUAL, session.getHibernateFlushMode());
+
+        interceptor.afterCompletion(request, response, handler, null);
+        assertFalse("요청이 끝나면 원래 값으로 되돌린다.", session.isDefaultReadOnly());
+        assertEquals(FlushMode.AUTO, session.getHibernateFlushMode());
+    }
+
+    @Test
+    public void 표시하지_않은_핸들러와_GET이_아닌_요청은_그대로() throws Exception {
+        //given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when
+        interceptor.preHandle(new MockHttpServletRequest("GET", "/items/1/edit"), response, handler("writable"));
+        interceptor.preHandle(new MockHttpServletRequest("POST", "/orders"), response, handler("readOnly"));
+
+        //then
+        assertFalse(session.isDefaultReadOnly());
+        assertEquals(FlushMode.AUTO, session.getHibernateFlushMode());
+    }
+
+    private static HandlerMethod handler(String methodName) throws NoSuchMethodException {
+        return new HandlerMethod(new TestController(), TestController.class.getMethod(methodName));
+    }
+
+    static class TestController {
+
+        @ReadOnlySession
+        public String readOnly() {
+            return "orders";
+        }
+
+        public String writable() {
+            return "items";
+        }
+    }
+}